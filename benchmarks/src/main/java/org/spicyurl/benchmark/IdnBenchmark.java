@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright 2012 Yonatan Graber
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.spicyurl.benchmark;
+
+import java.net.IDN;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.spicyurl.Idn;
+
+/**
+ * Host conversion to and from the ASCII form of internationalized domain
+ * names, {@link Idn} against {@link IDN}, on hosts which are mostly ASCII
+ * already, as they are in practice.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdnBenchmark {
+
+	private static final String[] HOSTS = { "www.example.com", "news.bbc.co.uk", "cdn.static.example.net",
+			"mail.google.com", "en.wikipedia.org", "www.xn--bcher-kva.de", "api.github.com", "192.168.1.1",
+			"www.bücher.de", "食狮.公司.cn" };
+
+	@Benchmark
+	@OperationsPerInvocation(10)
+	public void toAscii(Blackhole bh) {
+		for (String host : HOSTS) {
+			bh.consume(Idn.toAscii(host));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(10)
+	public void idnToAscii(Blackhole bh) {
+		for (String host : HOSTS) {
+			bh.consume(IDN.toASCII(host));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(10)
+	public void toUnicode(Blackhole bh) {
+		for (String host : HOSTS) {
+			bh.consume(Idn.toUnicode(host));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(10)
+	public void idnToUnicode(Blackhole bh) {
+		for (String host : HOSTS) {
+			bh.consume(IDN.toUnicode(host));
+		}
+	}
+}
@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright 2012 Yonatan Graber
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.spicyurl.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.spicyurl.IpC14n;
+import org.spicyurl.MalformedIpException;
+
+/**
+ * IP canonicalization throughput, over dotted, octal and hex obfuscated IPv4
+ * addresses, host names (which are not IPs at all) and IPv6 literals.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IpC14nBenchmark {
+
+	private static final int SIZE = 1024;
+
+	private final IpC14n c14n = new IpC14n();
+	private String[] ips;
+	private String[] names;
+	private String[] ipV6s;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(0x5eed5eedL);
+		ips = new String[SIZE];
+		names = new String[SIZE];
+		ipV6s = new String[SIZE];
+		for (int i = 0; i < SIZE; i++) {
+			int a = random.nextInt(256), b = random.nextInt(256), c = random.nextInt(256), d = random.nextInt(256);
+			switch (i % 4) {
+			case 0:
+				ips[i] = a + "." + b + "." + c + "." + d;
+				break;
+			case 1:
+				ips[i] = "0" + Integer.toOctalString(a) + ".0x" + Integer.toHexString(b) + "." + (c * 256 + d);
+				break;
+			case 2:
+				ips[i] = "0x" + Integer.toHexString((a << 24) | (b << 16) | (c << 8) | d);
+				break;
+			default:
+				ips[i] = String.valueOf(((long) a << 24) | (b << 16) | (c << 8) | d);
+			}
+			names[i] = (i % 2 == 0 ? "www." : "") + "host" + random.nextInt(10000) + ".com";
+			ipV6s[i] = i % 3 == 0 ? "2001:db8::" + Integer.toHexString(a << 8 | b) : Integer.toHexString(a) + ":"
+					+ Integer.toHexString(b) + "::ffff:" + a + "." + b + "." + c + "." + d;
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public void c14nIpV4(Blackhole bh) {
+		for (String ip : ips) {
+			bh.consume(c14n.c14nIpV4(ip));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public void c14nIpV4ToInt(Blackhole bh) {
+		for (String ip : ips) {
+			bh.consume(c14n.c14nIpV4ToInt(ip));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public void c14nIpV4OnNames(Blackhole bh) {
+		for (String name : names) {
+			try {
+				bh.consume(c14n.c14nIpV4(name));
+			} catch (MalformedIpException e) {
+				bh.consume(e);
+			}
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public void tryParseIpV4OnNames(Blackhole bh) {
+		for (String name : names) {
+			bh.consume(c14n.tryParseIpV4(name));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public void tryParseIpV6(Blackhole bh) {
+		long[] address = new long[2];
+		for (String ip : ipV6s) {
+			bh.consume(c14n.tryParseIpV6(ip, 0, ip.length(), address));
+		}
+	}
+}
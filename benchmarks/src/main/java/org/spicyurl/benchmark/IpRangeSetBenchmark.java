@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright 2012 Yonatan Graber
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.spicyurl.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.spicyurl.IpC14n;
+import org.spicyurl.IpRangeSet;
+import org.spicyurl.Url;
+
+/**
+ * Matching request hosts against a block list of random CIDR blocks:
+ * {@link IpRangeSet} lookups, building it from the list, and the linear
+ * scan over {@link IpC14n#c14nIpV4(String)} output it replaces.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IpRangeSetBenchmark {
+
+	private static final int HOSTS = 16;
+
+	@Param({ "300000" })
+	private int blocks;
+
+	private final IpC14n ipC14n = new IpC14n();
+	private List<String> cidrs;
+	private IpRangeSet set;
+	private byte[][] networks;
+	private int[] prefixLengths;
+	private Url[] urls;
+	private int[] addresses;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		cidrs = new ArrayList<String>(blocks);
+		networks = new byte[blocks][];
+		prefixLengths = new int[blocks];
+		for (int i = 0; i < blocks; i++) {
+			int prefixLength = 16 + random.nextInt(17);
+			String network = ipV4(random.nextInt() & (-1 << (32 - prefixLength)));
+			cidrs.add(network + "/" + prefixLength);
+			networks[i] = ipC14n.c14nIpV4(network);
+			prefixLengths[i] = prefixLength;
+		}
+		set = IpRangeSet.of(cidrs);
+		urls = new Url[HOSTS];
+		addresses = new int[HOSTS];
+		for (int i = 0; i < HOSTS; i++) {
+			addresses[i] = random.nextInt();
+			urls[i] = new Url("http://" + ipV4(addresses[i]) + "/index.html");
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(HOSTS)
+	public void containsUrl(Blackhole bh) {
+		for (Url url : urls) {
+			bh.consume(set.contains(url));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(HOSTS)
+	public void containsInt(Blackhole bh) {
+		for (int address : addresses) {
+			bh.consume(set.contains(address));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(HOSTS)
+	public void linearScan(Blackhole bh) {
+		for (Url url : urls) {
+			bh.consume(linearContains(ipC14n.c14nIpV4(url.getHost())));
+		}
+	}
+
+	@Benchmark
+	public IpRangeSet build() {
+		return IpRangeSet.of(cidrs);
+	}
+
+	private boolean linearContains(byte[] ip) {
+		int address = (ip[0] & 0xff) << 24 | (ip[1] & 0xff) << 16 | (ip[2] & 0xff) << 8 | (ip[3] & 0xff);
+		for (int i = 0; i < networks.length; i++) {
+			byte[] network = networks[i];
+			int mask = -1 << (32 - prefixLengths[i]);
+			int packed = (network[0] & 0xff) << 24 | (network[1] & 0xff) << 16 | (network[2] & 0xff) << 8
+					| (network[3] & 0xff);
+			if ((address & mask) == packed) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String ipV4(int address) {
+		return (address >>> 24) + "." + (address >>> 16 & 0xff) + "." + (address >>> 8 & 0xff) + "." + (address & 0xff);
+	}
+}
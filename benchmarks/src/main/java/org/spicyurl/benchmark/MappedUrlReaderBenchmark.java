@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright 2012 Yonatan Graber
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.spicyurl.benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.spicyurl.MappedUrlReader;
+import org.spicyurl.Url;
+import org.spicyurl.UrlComponent;
+
+/**
+ * Reading the host of every URL in a newline-delimited file: a
+ * BufferedReader feeding new Url(line), against {@link MappedUrlReader}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappedUrlReaderBenchmark {
+
+	private static final int LINES = 256 * UrlCorpus.SIZE;
+
+	private File file;
+
+	@Setup
+	public void setup() throws IOException {
+		String[] corpus = UrlCorpus.MIXED.urls();
+		file = File.createTempFile("urls", ".txt");
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try {
+			for (int i = 0; i < LINES; i++) {
+				writer.write(corpus[i % corpus.length]);
+				writer.write('\n');
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LINES)
+	public void bufferedReaderNewUrl(Blackhole bh) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+		try {
+			for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+				bh.consume(new Url(line).getHost());
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LINES)
+	public void mappedUrlReader(Blackhole bh) throws IOException {
+		MappedUrlReader reader = new MappedUrlReader(file);
+		try {
+			while (reader.next()) {
+				bh.consume(reader.get(UrlComponent.HOST));
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LINES)
+	public void mappedUrlReaderOffsetsOnly(Blackhole bh) throws IOException {
+		MappedUrlReader reader = new MappedUrlReader(file);
+		try {
+			while (reader.next()) {
+				bh.consume(reader.getEnd(UrlComponent.HOST) - reader.getStart(UrlComponent.HOST));
+			}
+		} finally {
+			reader.close();
+		}
+	}
+}
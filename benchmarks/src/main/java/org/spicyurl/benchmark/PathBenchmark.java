@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright 2012 Yonatan Graber
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.spicyurl.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.spicyurl.PathCursor;
+import org.spicyurl.Url;
+
+/**
+ * Routing on path segments of the LONG corpus: counting the URLs under
+ * <code>/api/v1</code> (after resolving dot segments) with a reused
+ * {@link PathCursor} and buffer, against splitting the path and building a
+ * list of segments. URLs are parsed in advance.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathBenchmark {
+
+	private Url[] urls;
+	private final PathCursor cursor = new PathCursor();
+	private final StringBuilder buffer = new StringBuilder();
+
+	@Setup
+	public void setup() {
+		String[] raws = UrlCorpus.LONG.urls();
+		urls = new Url[raws.length];
+		for (int i = 0; i < raws.length; i++) {
+			urls[i] = new Url(raws[i]);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(UrlCorpus.SIZE)
+	public void pathCursor(Blackhole bh) {
+		for (Url url : urls) {
+			bh.consume(cursor.reset(url).next() && cursor.segmentEquals("api") && cursor.next()
+					&& cursor.segmentEquals("v1"));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(UrlCorpus.SIZE)
+	public void resolvedPathCursor(Blackhole bh) {
+		for (Url url : urls) {
+			buffer.setLength(0);
+			url.appendResolvedPath(buffer);
+			bh.consume(cursor.reset(buffer).next() && cursor.segmentEquals("api") && cursor.next()
+					&& cursor.segmentEquals("v1"));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(UrlCorpus.SIZE)
+	public void splitResolved(Blackhole bh) {
+		for (Url url : urls) {
+			String path = url.getPath();
+			List<String> segments = new ArrayList<String>();
+			if (path != null) {
+				for (String segment : path.split("/", -1)) {
+					if ("..".equals(segment)) {
+						if (!segments.isEmpty()) {
+							segments.remove(segments.size() - 1);
+						}
+					} else if (!".".equals(segment)) {
+						segments.add(segment);
+					}
+				}
+			}
+			bh.consume(segments.size() > 1 && "api".equals(segments.get(0)) && "v1".equals(segments.get(1)));
+		}
+	}
+}
@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright 2012 Yonatan Graber
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.spicyurl.benchmark;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.spicyurl.PercentCodec;
+
+/**
+ * {@link PercentCodec#QUERY_PARAMETER} against {@link URLEncoder} and
+ * {@link URLDecoder}, over query values that need no escaping at all
+ * (<code>plain</code>) and values of which every few chars need escaping
+ * (<code>escaped</code>).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PercentCodecBenchmark {
+
+	private static final int SIZE = 1024;
+	private static final String PLAIN = "abcdefghijklmnopqrstuvwxyz0123456789-._";
+	private static final String ESCAPED = PLAIN + "      &=/?é";
+
+	@Param({ "plain", "escaped" })
+	public String values;
+
+	private String[] decoded;
+	private String[] encoded;
+
+	@Setup
+	public void setup() throws UnsupportedEncodingException {
+		String chars = "plain".equals(values) ? PLAIN : ESCAPED;
+		Random random = new Random(0x5eed5eedL);
+		decoded = new String[SIZE];
+		encoded = new String[SIZE];
+		for (int i = 0; i < SIZE; i++) {
+			StringBuilder sb = new StringBuilder();
+			for (int j = 8 + random.nextInt(32); j > 0; j--) {
+				sb.append(chars.charAt(random.nextInt(chars.length())));
+			}
+			decoded[i] = sb.toString();
+			encoded[i] = URLEncoder.encode(decoded[i], "UTF-8");
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public void encode(Blackhole bh) {
+		for (String s : decoded) {
+			bh.consume(PercentCodec.QUERY_PARAMETER.encode(s));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public void urlEncoder(Blackhole bh) throws UnsupportedEncodingException {
+		for (String s : decoded) {
+			bh.consume(URLEncoder.encode(s, "UTF-8"));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public void decode(Blackhole bh) {
+		for (String s : encoded) {
+			bh.consume(PercentCodec.QUERY_PARAMETER.decode(s));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public void urlDecoder(Blackhole bh) throws UnsupportedEncodingException {
+		for (String s : encoded) {
+			bh.consume(URLDecoder.decode(s, "UTF-8"));
+		}
+	}
+}
@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright 2012 Yonatan Graber
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.spicyurl.benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.spicyurl.PublicSuffixList;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+/**
+ * Registrable domain lookups on a full public suffix list: offsets from the
+ * {@link PublicSuffixList} trie, the extracted domain string, and the naive
+ * split-the-host-and-probe-a-HashSet approach.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PublicSuffixBenchmark {
+
+	private static final String[] HOSTS = { "www.example.com", "news.bbc.co.uk", "a.b.c.example.org",
+			"foo.blogspot.com", "www.city.kobe.jp", "shop.example.com.au", "cdn.static.example.net",
+			"mail.google.com", "en.wikipedia.org", "www.gov.uk" };
+
+	@Param({ "/usr/share/publicsuffix/public_suffix_list.dat" })
+	private String listFile;
+
+	private PublicSuffixList list;
+	private Set<String> rules;
+
+	@Setup
+	public void setup() throws IOException {
+		list = PublicSuffixList.load(new File(listFile));
+		rules = new HashSet<String>();
+		BufferedReader reader = Files.newReader(new File(listFile), Charsets.UTF_8);
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (!line.isEmpty() && !line.startsWith("//")) {
+					rules.add(line);
+				}
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(10)
+	public void registrableDomainStart(Blackhole bh) {
+		for (String host : HOSTS) {
+			bh.consume(list.registrableDomainStart(host, 0, host.length()));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(10)
+	public void getRegistrableDomain(Blackhole bh) {
+		for (String host : HOSTS) {
+			bh.consume(list.getRegistrableDomain(host));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(10)
+	public void naive(Blackhole bh) {
+		for (String host : HOSTS) {
+			bh.consume(naiveRegistrableDomain(host));
+		}
+	}
+
+	private String naiveRegistrableDomain(String host) {
+		String[] labels = host.toLowerCase().split("\\.");
+		for (int i = 0; i < labels.length; i++) {
+			String suffix = join(labels, i);
+			if (rules.contains("!" + suffix)) {
+				return join(labels, i);
+			}
+			if (rules.contains(suffix) || (i + 1 < labels.length && rules.contains("*." + join(labels, i + 1)))) {
+				return i == 0 ? null : join(labels, i - 1);
+			}
+		}
+		return labels.length < 2 ? null : join(labels, labels.length - 2);
+	}
+
+	private static String join(String[] labels, int from) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = from; i < labels.length; i++) {
+			if (i > from) {
+				sb.append('.');
+			}
+			sb.append(labels[i]);
+		}
+		return sb.toString();
+	}
+}
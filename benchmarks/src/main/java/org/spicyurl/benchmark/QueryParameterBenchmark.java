@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright 2012 Yonatan Graber
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.spicyurl.benchmark;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.spicyurl.Url;
+
+/**
+ * Reading 3 parameters out of tracking URLs with 40 query parameters, some
+ * of them escaped: {@link Url#getParameter(String)} against splitting and
+ * decoding the whole query with {@link URLDecoder}, and against
+ * {@link Url#getParameterMap()}. URLs are parsed in advance.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryParameterBenchmark {
+
+	private static final int SIZE = 256;
+	private static final int PARAMETERS = 40;
+	private static final String[] WANTED = { "campaign_id", "click_id", "redirect" };
+
+	private Url[] urls;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(0x5eed5eedL);
+		urls = new Url[SIZE];
+		for (int i = 0; i < SIZE; i++) {
+			StringBuilder sb = new StringBuilder("https://track.example.com/click?");
+			int[] wanted = { random.nextInt(PARAMETERS), random.nextInt(PARAMETERS), random.nextInt(PARAMETERS) };
+			for (int p = 0; p < PARAMETERS; p++) {
+				if (p > 0) {
+					sb.append('&');
+				}
+				if (p == wanted[0]) {
+					sb.append("campaign_id=").append(random.nextInt(100000));
+				} else if (p == wanted[1]) {
+					sb.append("click_id=").append(Long.toHexString(random.nextLong()));
+				} else if (p == wanted[2]) {
+					sb.append("redirect=https%3A%2F%2Fshop.example.com%2Fitem%3Fid%3D").append(random.nextInt(1000));
+				} else if (p % 4 == 0) {
+					sb.append("utm_").append(p).append("=some+value+%C3%A9");
+				} else {
+					sb.append("p").append(p).append('=').append(random.nextInt(1000000));
+				}
+			}
+			urls[i] = new Url(sb.toString());
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public void getParameter(Blackhole bh) {
+		for (Url url : urls) {
+			for (String name : WANTED) {
+				bh.consume(url.getParameter(name));
+			}
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public void getParameterMap(Blackhole bh) {
+		for (Url url : urls) {
+			// A fresh Url, so the map is built every time
+			Url fresh = new Url(url.getRaw());
+			for (String name : WANTED) {
+				bh.consume(fresh.getParameterMap().get(name));
+			}
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public void newUrlGetParameter(Blackhole bh) {
+		for (Url url : urls) {
+			Url fresh = new Url(url.getRaw());
+			for (String name : WANTED) {
+				bh.consume(fresh.getParameter(name));
+			}
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public void splitAndDecode(Blackhole bh) throws UnsupportedEncodingException {
+		for (Url url : urls) {
+			Map<String, String> parameters = new HashMap<String, String>();
+			for (String pair : url.getQuery().split("&")) {
+				int eq = pair.indexOf('=');
+				String key = eq == -1 ? pair : pair.substring(0, eq);
+				String value = eq == -1 ? "" : pair.substring(eq + 1);
+				parameters.put(URLDecoder.decode(key, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+			}
+			for (String name : WANTED) {
+				bh.consume(parameters.get(name));
+			}
+		}
+	}
+}
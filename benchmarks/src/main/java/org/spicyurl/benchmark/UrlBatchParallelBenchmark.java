@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright 2012 Yonatan Graber
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.spicyurl.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.spicyurl.Url;
+import org.spicyurl.UrlBatch;
+
+/**
+ * Parsing a large batch of URLs: one Url per line, a sequential
+ * {@link UrlBatch}, and a parallel one on a fixed thread pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UrlBatchParallelBenchmark {
+
+	private static final int SIZE = 256 * UrlCorpus.SIZE;
+
+	@Param({ "1", "2", "4", "8" })
+	public int threads;
+
+	private List<String> urls;
+	private UrlBatch batch;
+	private ExecutorService executor;
+
+	@Setup
+	public void setup() {
+		String[] corpus = UrlCorpus.MIXED.urls();
+		urls = new ArrayList<String>(SIZE);
+		for (int i = 0; i < SIZE; i++) {
+			urls.add(corpus[i % corpus.length]);
+		}
+		batch = new UrlBatch(SIZE);
+		executor = Executors.newFixedThreadPool(threads);
+	}
+
+	@TearDown
+	public void tearDown() {
+		executor.shutdown();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public void newUrlPerLine(Blackhole bh) {
+		for (String url : urls) {
+			bh.consume(new Url(url));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public void batch(Blackhole bh) {
+		bh.consume(batch.parse(urls));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public void parallelBatch(Blackhole bh) {
+		bh.consume(batch.parse(urls, executor));
+	}
+}
@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright 2012 Yonatan Graber
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.spicyurl.benchmark;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.spicyurl.Url;
+import org.spicyurl.UrlBatch;
+import org.spicyurl.UrlInternPool;
+
+/**
+ * Url construction and validation throughput. Every invocation goes over the
+ * whole corpus, so scores are in URLs per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UrlBenchmark {
+
+	@Param({ "SHORT", "LONG", "LOGIN_PORT", "QUERY_FRAGMENT", "MIXED", "INVALID" })
+	public UrlCorpus corpus;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private String[] urls;
+	private byte[][] urlBytes;
+	private List<String> urlList;
+	private UrlBatch batch;
+	private final UrlInternPool pool = new UrlInternPool();
+
+	@Setup
+	public void setup() {
+		urls = corpus.urls();
+		urlList = Arrays.asList(urls);
+		urlBytes = new byte[urls.length][];
+		for (int i = 0; i < urls.length; i++) {
+			urlBytes[i] = urls[i].getBytes(UTF_8);
+		}
+		batch = new UrlBatch(urls.length);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(UrlCorpus.SIZE)
+	public void newUrl(Blackhole bh) {
+		for (String url : urls) {
+			bh.consume(new Url(url));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(UrlCorpus.SIZE)
+	public void newUrlIsValid(Blackhole bh) {
+		for (String url : urls) {
+			bh.consume(new Url(url).isValid());
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(UrlCorpus.SIZE)
+	public void newUrlGetHostAndScheme(Blackhole bh) {
+		for (String url : urls) {
+			Url u = new Url(url);
+			bh.consume(u.getHost());
+			bh.consume(u.getScheme());
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(UrlCorpus.SIZE)
+	public void newUrlInterned(Blackhole bh) {
+		for (String url : urls) {
+			Url u = new Url(url, pool);
+			bh.consume(u.getHost());
+			bh.consume(u.getScheme());
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(UrlCorpus.SIZE)
+	public void newUrlGetAll(Blackhole bh) {
+		for (String url : urls) {
+			Url u = new Url(url);
+			bh.consume(u.getScheme());
+			bh.consume(u.getUsername());
+			bh.consume(u.getPassword());
+			bh.consume(u.getHost());
+			bh.consume(u.getPort());
+			bh.consume(u.getPath());
+			bh.consume(u.getQuery());
+			bh.consume(u.getFragment());
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(UrlCorpus.SIZE)
+	public void staticIsValid(Blackhole bh) {
+		for (String url : urls) {
+			bh.consume(Url.isValid(url));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(UrlCorpus.SIZE)
+	public void urlBatch(Blackhole bh) {
+		bh.consume(batch.parse(urlList));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(UrlCorpus.SIZE)
+	public void urlBatchGetHostAndScheme(Blackhole bh) {
+		batch.parse(urlList);
+		for (int row = 0; row < batch.size(); row++) {
+			bh.consume(batch.getHost(row));
+			bh.consume(batch.getScheme(row));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(UrlCorpus.SIZE)
+	public void decodeBytesNewUrlGetHost(Blackhole bh) {
+		for (byte[] url : urlBytes) {
+			bh.consume(new Url(new String(url, UTF_8)).getHost());
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(UrlCorpus.SIZE)
+	public void newUrlFromBytesGetHost(Blackhole bh) {
+		for (byte[] url : urlBytes) {
+			bh.consume(new Url(url, 0, url.length).getHost());
+		}
+	}
+}
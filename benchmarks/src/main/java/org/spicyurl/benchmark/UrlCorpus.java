@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright 2012 Yonatan Graber
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.spicyurl.benchmark;
+
+import java.util.Random;
+
+/**
+ * Deterministic URL corpora for the benchmarks. Every corpus is generated
+ * from a fixed seed, so runs on different machines and versions measure the
+ * same inputs.
+ */
+public enum UrlCorpus {
+	/**
+	 * Scheme and host only, e.g. <code>http://host12.com</code>
+	 */
+	SHORT(false, false, false, false, 1, 0),
+	/**
+	 * Deep paths and long queries, no login or port
+	 */
+	LONG(false, false, true, true, 6, 0),
+	/**
+	 * With login and port, short paths
+	 */
+	LOGIN_PORT(true, true, false, false, 2, 0),
+	/**
+	 * With query and fragment
+	 */
+	QUERY_FRAGMENT(false, false, true, true, 2, 0),
+	/**
+	 * A mix of everything, like an access log, 10% of it invalid
+	 */
+	MIXED(true, true, true, true, 3, 10),
+	/**
+	 * Invalid URLs only: missing scheme separator, host or bad ports
+	 */
+	INVALID(false, true, true, false, 2, 100);
+
+	public static final int SIZE = 1024;
+	private static final long SEED = 0x5eed5eedL;
+
+	private static final String[] SCHEMES = { "http", "https", "ftp" };
+	private static final String[] TLDS = { "com", "org", "net", "co.il", "co.uk", "io" };
+	private static final String[] WORDS = { "index", "api", "v1", "users", "search", "static", "img", "product",
+			"category", "item", "view", "2012", "archive", "page", "news" };
+	private static final String[] BROKEN = { "http:/%s", "http//%s", "%s", "http://:%s", "http://%s:99999",
+			"http://%s:8o", "://%s", "http://%s:1:2" };
+
+	private final boolean login;
+	private final boolean port;
+	private final boolean query;
+	private final boolean fragment;
+	private final int depth;
+	private final int invalidPercent;
+
+	private UrlCorpus(boolean login, boolean port, boolean query, boolean fragment, int depth, int invalidPercent) {
+		this.login = login;
+		this.port = port;
+		this.query = query;
+		this.fragment = fragment;
+		this.depth = depth;
+		this.invalidPercent = invalidPercent;
+	}
+
+	public String[] urls() {
+		Random random = new Random(SEED + ordinal());
+		String[] urls = new String[SIZE];
+		for (int i = 0; i < SIZE; i++) {
+			urls[i] = url(random);
+		}
+		return urls;
+	}
+
+	private String url(Random random) {
+		String host = host(random);
+		if (random.nextInt(100) < invalidPercent) {
+			return String.format(BROKEN[random.nextInt(BROKEN.length)], host);
+		}
+		StringBuilder sb = new StringBuilder();
+		sb.append(SCHEMES[random.nextInt(SCHEMES.length)]).append("://");
+		if (login && random.nextBoolean()) {
+			sb.append("user").append(random.nextInt(1000));
+			if (random.nextBoolean()) {
+				sb.append(':').append("pass").append(random.nextInt(1000));
+			}
+			sb.append('@');
+		}
+		sb.append(host);
+		if (port && random.nextBoolean()) {
+			sb.append(':').append(1 + random.nextInt(65535));
+		}
+		if (depth > 1 || random.nextBoolean()) {
+			for (int i = random.nextInt(depth + 1); i > 0; i--) {
+				sb.append('/').append(WORDS[random.nextInt(WORDS.length)]);
+			}
+			sb.append('/');
+		}
+		if (query && random.nextInt(4) > 0) {
+			sb.append('?');
+			for (int i = 1 + random.nextInt(depth * 2); i > 0; i--) {
+				sb.append(WORDS[random.nextInt(WORDS.length)]).append('=').append(random.nextInt(100000));
+				if (i > 1) {
+					sb.append('&');
+				}
+			}
+		}
+		if (fragment && random.nextBoolean()) {
+			sb.append('#').append(WORDS[random.nextInt(WORDS.length)]);
+		}
+		return sb.toString();
+	}
+
+	private static String host(Random random) {
+		int kind = random.nextInt(20);
+		if (kind == 0) {
+			return random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256) + "."
+					+ random.nextInt(256);
+		}
+		StringBuilder sb = new StringBuilder();
+		if (kind < 12) {
+			sb.append("www.");
+		}
+		sb.append(WORDS[random.nextInt(WORDS.length)]).append(random.nextInt(100));
+		return sb.append('.').append(TLDS[random.nextInt(TLDS.length)]).toString();
+	}
+}
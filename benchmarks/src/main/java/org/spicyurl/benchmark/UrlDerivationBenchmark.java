@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright 2012 Yonatan Graber
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.spicyurl.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.spicyurl.Url;
+
+/**
+ * Rewriting one component of a parsed URL, as a redirect or link rewriting
+ * stage does: {@link Url#withHost(String)} and {@link Url#withQuery(String)}
+ * against concatenating the new URL and parsing it again. The corpora are
+ * valid URLs only.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UrlDerivationBenchmark {
+
+	@Param({ "SHORT", "LONG", "LOGIN_PORT" })
+	public UrlCorpus corpus;
+
+	private Url[] urls;
+
+	@Setup
+	public void setup() {
+		String[] raws = corpus.urls();
+		urls = new Url[raws.length];
+		for (int i = 0; i < raws.length; i++) {
+			urls[i] = new Url(raws[i]);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(UrlCorpus.SIZE)
+	public void withHost(Blackhole bh) {
+		for (Url url : urls) {
+			bh.consume(url.withHost("proxy.example.com").getPath());
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(UrlCorpus.SIZE)
+	public void reparseWithHost(Blackhole bh) {
+		for (Url url : urls) {
+			StringBuilder sb = new StringBuilder();
+			sb.append(url.getScheme()).append("://");
+			if (url.getUsername() != null) {
+				sb.append(url.getUsername());
+				if (url.getPassword() != null) {
+					sb.append(':').append(url.getPassword());
+				}
+				sb.append('@');
+			}
+			sb.append("proxy.example.com");
+			if (url.getPort() != -1) {
+				sb.append(':').append(url.getPort());
+			}
+			if (url.getPath() != null) {
+				sb.append('/').append(url.getPath());
+			}
+			if (url.getQuery() != null) {
+				sb.append('?').append(url.getQuery());
+			}
+			if (url.getFragment() != null) {
+				sb.append('#').append(url.getFragment());
+			}
+			bh.consume(new Url(sb.toString()).getPath());
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(UrlCorpus.SIZE)
+	public void withQueryRemoved(Blackhole bh) {
+		for (Url url : urls) {
+			bh.consume(url.withQuery(null).getRaw());
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(UrlCorpus.SIZE)
+	public void reparseWithQueryRemoved(Blackhole bh) {
+		for (Url url : urls) {
+			String raw = url.getRaw();
+			int query = raw.indexOf('?');
+			if (query != -1) {
+				int fragment = raw.indexOf('#', query);
+				raw = raw.substring(0, query) + (fragment == -1 ? "" : raw.substring(fragment));
+			}
+			bh.consume(new Url(raw).getRaw());
+		}
+	}
+}
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright 2012 Yonatan Graber
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.spicyurl.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.spicyurl.Url;
+import org.spicyurl.UrlNormalizer;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * Fingerprinting URLs for dedupe: {@link Url#fingerprint()}, streamed from
+ * the normalizing pass, against building the canonical string and hashing
+ * it with the same function.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UrlFingerprintBenchmark {
+
+	@Param({ "LONG", "MIXED" })
+	public UrlCorpus corpus;
+
+	private final UrlNormalizer normalizer = new UrlNormalizer();
+	private final HashFunction murmur3 = Hashing.murmur3_128();
+	private Url[] urls;
+
+	@Setup
+	public void setup() {
+		String[] raws = corpus.urls();
+		urls = new Url[raws.length];
+		for (int i = 0; i < raws.length; i++) {
+			urls[i] = new Url(raws[i]);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(UrlCorpus.SIZE)
+	public void fingerprint(Blackhole bh) {
+		for (Url url : urls) {
+			bh.consume(url.fingerprint());
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(UrlCorpus.SIZE)
+	public void hashCanonicalString(Blackhole bh) {
+		for (Url url : urls) {
+			bh.consume(murmur3.hashString(normalizer.toCanonicalString(url), Charsets.UTF_8).asLong());
+		}
+	}
+}
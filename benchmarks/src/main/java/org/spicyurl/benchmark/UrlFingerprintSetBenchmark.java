@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright 2012 Yonatan Graber
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.spicyurl.benchmark;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.spicyurl.UrlFingerprintSet;
+
+/**
+ * Remembering seen URL fingerprints: {@link UrlFingerprintSet} against a
+ * <code>HashSet&lt;Long&gt;</code>, filling a set from empty (growth
+ * included) and looking up a half seen, half unseen mix in a full one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UrlFingerprintSetBenchmark {
+
+	private static final int SIZE = 1 << 20;
+
+	private long[] fingerprints;
+	private long[] lookups;
+	private UrlFingerprintSet full;
+	private Set<Long> fullHashSet;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		fingerprints = new long[SIZE];
+		lookups = new long[SIZE];
+		full = new UrlFingerprintSet();
+		fullHashSet = new HashSet<Long>();
+		for (int i = 0; i < SIZE; i++) {
+			fingerprints[i] = random.nextLong();
+			full.add(fingerprints[i]);
+			fullHashSet.add(fingerprints[i]);
+			lookups[i] = i % 2 == 0 ? fingerprints[i] : random.nextLong();
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public UrlFingerprintSet fill() {
+		UrlFingerprintSet set = new UrlFingerprintSet(0, 16);
+		for (long fingerprint : fingerprints) {
+			set.add(fingerprint);
+		}
+		return set;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public Set<Long> fillHashSet() {
+		Set<Long> set = new HashSet<Long>();
+		for (long fingerprint : fingerprints) {
+			set.add(fingerprint);
+		}
+		return set;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public void contains(Blackhole bh) {
+		for (long fingerprint : lookups) {
+			bh.consume(full.contains(fingerprint));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public void containsHashSet(Blackhole bh) {
+		for (long fingerprint : lookups) {
+			bh.consume(fullHashSet.contains(fingerprint));
+		}
+	}
+}
@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright 2012 Yonatan Graber
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.spicyurl.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.spicyurl.Url;
+import org.spicyurl.UrlMatcher;
+
+/**
+ * Matching URLs against many host and path rules: the compiled
+ * {@link UrlMatcher} against iterating the rules with
+ * <code>getHost().endsWith(...)</code> and
+ * <code>getPath().startsWith(...)</code>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UrlMatcherBenchmark {
+
+	private static final int URLS = 8;
+
+	@Param({ "200000" })
+	private int rules;
+
+	private UrlMatcher matcher;
+	private String[] hostSuffixes;
+	private String[] pathPrefixes;
+	private Url[] urls;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		UrlMatcher.Builder builder = UrlMatcher.builder();
+		hostSuffixes = new String[rules];
+		pathPrefixes = new String[rules];
+		for (int i = 0; i < rules; i++) {
+			String host = "site" + random.nextInt(rules) + ".com";
+			String path = random.nextBoolean() ? "" : "ads" + random.nextInt(10) + "/";
+			builder.add(i, "*." + host + "/" + path + "*");
+			hostSuffixes[i] = "." + host;
+			pathPrefixes[i] = path;
+		}
+		matcher = builder.build();
+		urls = new Url[URLS];
+		for (int i = 0; i < URLS; i++) {
+			urls[i] = new Url("http://www.site" + random.nextInt(rules) + ".com/ads" + random.nextInt(10)
+					+ "/banner.gif?id=" + i);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(URLS)
+	public void match(Blackhole bh) {
+		for (Url url : urls) {
+			bh.consume(matcher.match(url));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(URLS)
+	public void iterateRules(Blackhole bh) {
+		for (Url url : urls) {
+			String host = url.getHost();
+			String path = url.getPath();
+			int matches = 0;
+			for (int i = 0; i < hostSuffixes.length; i++) {
+				if (host.endsWith(hostSuffixes[i]) && path.startsWith(pathPrefixes[i])) {
+					matches++;
+				}
+			}
+			bh.consume(matches);
+		}
+	}
+}
@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright 2012 Yonatan Graber
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.spicyurl.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.spicyurl.IpC14n;
+import org.spicyurl.MalformedIpException;
+import org.spicyurl.Url;
+import org.spicyurl.UrlNormalizer;
+
+/**
+ * {@link UrlNormalizer} against the naive multi-pass normalization every
+ * consumer used to write: lower case the scheme and host, try the host as an
+ * IP, drop the default port, decode escapes with a regular expression and
+ * resolve dot segments over a split path. Both work on already parsed URLs.
+ * <p>
+ * <code>dirtyPercent</code> of the URLs are made non canonical, with an upper
+ * case host, an explicit default port and a dot segment.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UrlNormalizerBenchmark {
+
+	@Param({ "LONG", "LOGIN_PORT", "MIXED" })
+	public UrlCorpus corpus;
+
+	@Param({ "0", "10", "100" })
+	public int dirtyPercent;
+
+	private static final Pattern ESCAPE = Pattern.compile("%([0-9a-fA-F]{2})");
+
+	private final UrlNormalizer normalizer = new UrlNormalizer();
+	private final IpC14n c14n = new IpC14n();
+	private Url[] urls;
+
+	@Setup
+	public void setup() {
+		String[] raws = corpus.urls();
+		Random random = new Random(0x5eed5eedL);
+		urls = new Url[raws.length];
+		for (int i = 0; i < raws.length; i++) {
+			Url url = new Url(raws[i]);
+			if (url.isValid() && url.getPort() == -1 && random.nextInt(100) < dirtyPercent) {
+				String scheme = url.getScheme();
+				int port = "https".equals(scheme) ? 443 : "ftp".equals(scheme) ? 21 : 80;
+				url = new Url(raws[i].replace(url.getHost(), url.getHost().toUpperCase() + ":" + port + "/.")
+						.replace("//.", "/.").replaceFirst("/\\.$", "/./"));
+			}
+			urls[i] = url;
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(UrlCorpus.SIZE)
+	public void normalize(Blackhole bh) {
+		for (Url url : urls) {
+			bh.consume(normalizer.normalize(url));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(UrlCorpus.SIZE)
+	public void toCanonicalString(Blackhole bh) {
+		for (Url url : urls) {
+			bh.consume(normalizer.toCanonicalString(url));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(UrlCorpus.SIZE)
+	public void naive(Blackhole bh) {
+		for (Url url : urls) {
+			bh.consume(naive(url));
+		}
+	}
+
+	private String naive(Url url) {
+		if (!url.isValid()) {
+			return url.getRaw();
+		}
+		String scheme = url.getScheme().toLowerCase();
+		String host = url.getHost().toLowerCase();
+		try {
+			byte[] ip = c14n.c14nIpV4(host);
+			host = (ip[0] & 0xff) + "." + (ip[1] & 0xff) + "." + (ip[2] & 0xff) + "." + (ip[3] & 0xff);
+		} catch (MalformedIpException e) {
+			// Not an IP
+		}
+		int port = url.getPort();
+		if (("http".equals(scheme) && port == 80) || ("https".equals(scheme) && port == 443)
+				|| ("ftp".equals(scheme) && port == 21)) {
+			port = -1;
+		}
+		StringBuilder sb = new StringBuilder();
+		sb.append(scheme).append("://");
+		if (url.getUsername() != null) {
+			sb.append(unescape(url.getUsername()));
+			if (url.getPassword() != null) {
+				sb.append(':').append(unescape(url.getPassword()));
+			}
+			sb.append('@');
+		}
+		sb.append(host);
+		if (port != -1) {
+			sb.append(':').append(port);
+		}
+		if (url.getPath() != null) {
+			List<String> segments = new ArrayList<String>();
+			String[] split = unescape("/" + url.getPath()).split("/", -1);
+			for (int i = 1; i < split.length; i++) {
+				if ("..".equals(split[i])) {
+					if (!segments.isEmpty()) {
+						segments.remove(segments.size() - 1);
+					}
+				} else if (!".".equals(split[i])) {
+					segments.add(split[i]);
+				}
+			}
+			String last = split[split.length - 1];
+			if (".".equals(last) || "..".equals(last)) {
+				segments.add("");
+			}
+			for (String segment : segments) {
+				sb.append('/').append(segment);
+			}
+			if (segments.isEmpty()) {
+				sb.append('/');
+			}
+		}
+		if (url.getQuery() != null) {
+			sb.append('?').append(unescape(url.getQuery()));
+		}
+		if (url.getFragment() != null) {
+			sb.append('#').append(unescape(url.getFragment()));
+		}
+		return sb.toString();
+	}
+
+	private static String unescape(String s) {
+		Matcher matcher = ESCAPE.matcher(s);
+		StringBuffer sb = new StringBuffer();
+		while (matcher.find()) {
+			char c = (char) Integer.parseInt(matcher.group(1), 16);
+			boolean unreserved = Character.isLetterOrDigit(c) && c < 0x80 || c == '-' || c == '.' || c == '_'
+					|| c == '~';
+			matcher.appendReplacement(sb, unreserved ? String.valueOf(c) : "%" + matcher.group(1).toUpperCase());
+		}
+		matcher.appendTail(sb);
+		return sb.toString();
+	}
+}
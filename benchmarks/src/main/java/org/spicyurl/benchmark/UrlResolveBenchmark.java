@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright 2012 Yonatan Graber
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.spicyurl.benchmark;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.spicyurl.Url;
+
+/**
+ * Resolving the links of a page against the page's URL, as a crawler does:
+ * {@link Url#resolve(CharSequence)} against a round trip through
+ * {@link URI#resolve(String)}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UrlResolveBenchmark {
+
+	private static final String[] LINKS = { "item/view?id=12", "../category/news/", "/static/img/logo.png",
+			"?page=2", "#comments", "./2012/archive", "//cdn.example.com/lib.js", "https://other.example.org/a",
+			"../../index", "search?q=spicy+url" };
+
+	private final Url page = new Url("http://www.example.com/news/2012/article.html?ref=home");
+
+	@Benchmark
+	@OperationsPerInvocation(10)
+	public void resolve(Blackhole bh) {
+		for (String link : LINKS) {
+			bh.consume(page.resolve(link));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(10)
+	public void uriResolve(Blackhole bh) throws URISyntaxException {
+		for (String link : LINKS) {
+			bh.consume(new Url(page.asURI().resolve(link)));
+		}
+	}
+}
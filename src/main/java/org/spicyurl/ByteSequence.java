@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright 2012 Yonatan Graber
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.spicyurl;
+
+import java.nio.ByteBuffer;
+
+import com.google.common.base.Charsets;
+
+/**
+ * A {@link CharSequence} view over UTF-8 (or ASCII) bytes, for running
+ * {@link UrlParser} without decoding the bytes first.
+ * <p>
+ * {@link #charAt(int)} returns each byte as a char. All the URL delimiters
+ * are ASCII, and every byte of a multi-byte UTF-8 sequence is above
+ * <code>0x7f</code>, so scanning the bytes finds the same delimiters as
+ * scanning the decoded chars would, and offsets are byte offsets.
+ * {@link #toString()} decodes the viewed bytes as UTF-8, so components are
+ * only decoded when they are cut.
+ * <p>
+ * The bytes are not copied; they must not change while the view is in use.
+ */
+final class ByteSequence implements CharSequence {
+
+	private ByteBuffer buffer;
+	private int offset;
+	private int length;
+
+	/**
+	 * The backing array of a heap buffer, read directly by
+	 * {@link #charAt(int)} from <code>arrayOffset</code>; <code>null</code>
+	 * for a direct buffer
+	 */
+	private byte[] array;
+	private int arrayOffset;
+
+	ByteSequence(ByteBuffer buffer, int offset, int length) {
+		set(buffer, offset, length);
+	}
+
+	/**
+	 * Moves this view to other bytes
+	 */
+	void set(ByteBuffer buffer, int offset, int length) {
+		this.buffer = buffer;
+		this.offset = offset;
+		this.length = length;
+		boolean heap = buffer != null && buffer.hasArray();
+		this.array = heap ? buffer.array() : null;
+		this.arrayOffset = heap ? buffer.arrayOffset() + offset : 0;
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (index < 0 || index >= length) {
+			throw new IndexOutOfBoundsException(String.valueOf(index));
+		}
+		if (array != null) {
+			return (char) (array[arrayOffset + index] & 0xff);
+		}
+		return (char) (buffer.get(offset + index) & 0xff);
+	}
+
+	@Override
+	public ByteSequence subSequence(int start, int end) {
+		if (start < 0 || end > length || start > end) {
+			throw new IndexOutOfBoundsException(start + "-" + end);
+		}
+		return new ByteSequence(buffer, offset + start, end - start);
+	}
+
+	@Override
+	public String toString() {
+		return substring(0, length);
+	}
+
+	/**
+	 * Decodes the bytes between <code>start</code> (inclusive) and
+	 * <code>end</code> (exclusive) as UTF-8, without creating a sub view first
+	 */
+	String substring(int start, int end) {
+		int from = offset + start;
+		int count = end - start;
+		if (array != null) {
+			return decode(array, arrayOffset + start, count);
+		}
+		byte[] bytes = new byte[count];
+		ByteBuffer view = buffer.duplicate();
+		view.clear();
+		view.position(from);
+		view.get(bytes);
+		return decode(bytes, 0, count);
+	}
+
+	/**
+	 * Decodes UTF-8 bytes. ASCII bytes, which most URL components are, are
+	 * widened into chars directly, without going through a decoder.
+	 */
+	@SuppressWarnings("deprecation")
+	private static String decode(byte[] bytes, int offset, int count) {
+		for (int i = offset; i < offset + count; i++) {
+			if (bytes[i] < 0) {
+				return new String(bytes, offset, count, Charsets.UTF_8);
+			}
+		}
+		return new String(bytes, 0, offset, count);
+	}
+}
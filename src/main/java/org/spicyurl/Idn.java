@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright 2012 Yonatan Graber
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.spicyurl;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Conversion of internationalized domain names between their Unicode and
+ * ASCII forms (IDNA, RFC 3490), a drop-in for {@link java.net.IDN} on the
+ * host handling path.
+ * <p>
+ * Nearly all hosts are already ASCII, so both directions first scan the
+ * host once, and return it untouched, as the same instance, when there is
+ * nothing to convert. Only the labels which need it are converted, through
+ * {@link Punycode}. Before encoding, a label is case folded and NFKC
+ * normalized, which is what nameprep (RFC 3491) does for the labels found
+ * in practice; unlike {@link java.net.IDN}, prohibited and unassigned code
+ * points are not rejected. Thread safe.
+ */
+public final class Idn {
+
+	private static final String ACE_PREFIX = "xn--";
+	private static final int MAX_LABEL_LENGTH = 63;
+
+	private Idn() {
+	}
+
+	/**
+	 * @return the host with its non-ASCII labels in their ASCII compatible
+	 *         (<code>xn--</code> punycode) form; the same instance if the host
+	 *         is already ASCII
+	 * @throws IllegalArgumentException
+	 *             if a converted label is longer than 63 chars
+	 */
+	public static String toAscii(String host) {
+		if (isAscii(host, 0, host.length())) {
+			return host;
+		}
+		StringBuilder sb = new StringBuilder(host.length() + 16);
+		appendAscii(host, 0, host.length(), sb);
+		return sb.toString();
+	}
+
+	/**
+	 * @return the host with its <code>xn--</code> labels decoded to Unicode;
+	 *         the same instance if it has none. Labels which fail to decode
+	 *         are kept as they are.
+	 */
+	public static String toUnicode(String host) {
+		if (!hasAceLabel(host, 0, host.length())) {
+			return host;
+		}
+		StringBuilder sb = new StringBuilder(host.length());
+		appendUnicode(host, 0, host.length(), sb);
+		return sb.toString();
+	}
+
+	/**
+	 * Appends the ASCII form of the host between <code>start</code>
+	 * (inclusive) and <code>end</code> (exclusive). The ideographic and
+	 * fullwidth full stops are label separators as well, and are appended
+	 * as '.'.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if a converted label is longer than 63 chars
+	 */
+	public static void appendAscii(CharSequence host, int start, int end, StringBuilder out) {
+		Preconditions.checkPositionIndexes(start, end, host.length());
+		int labelStart = start;
+		for (int i = start; i <= end; i++) {
+			if (i < end && !isSeparator(host.charAt(i))) {
+				continue;
+			}
+			appendAsciiLabel(host, labelStart, i, out);
+			if (i < end) {
+				out.append('.');
+			}
+			labelStart = i + 1;
+		}
+	}
+
+	/**
+	 * Appends the Unicode form of the host between <code>start</code>
+	 * (inclusive) and <code>end</code> (exclusive)
+	 */
+	public static void appendUnicode(CharSequence host, int start, int end, StringBuilder out) {
+		Preconditions.checkPositionIndexes(start, end, host.length());
+		int labelStart = start;
+		for (int i = start; i <= end; i++) {
+			if (i < end && host.charAt(i) != '.') {
+				continue;
+			}
+			int mark = out.length();
+			if (!isAceLabel(host, labelStart, i) || !Punycode.decode(host, labelStart + ACE_PREFIX.length(), i, out)) {
+				out.setLength(mark);
+				out.append(host, labelStart, i);
+			}
+			if (i < end) {
+				out.append('.');
+			}
+			labelStart = i + 1;
+		}
+	}
+
+	private static void appendAsciiLabel(CharSequence host, int start, int end, StringBuilder out) {
+		if (isAscii(host, start, end)) {
+			out.append(host, start, end);
+			return;
+		}
+		String label = Normalizer.normalize(caseFold(host, start, end), Normalizer.Form.NFKC);
+		if (isAscii(label, 0, label.length())) {
+			out.append(label);
+			return;
+		}
+		int mark = out.length();
+		out.append(ACE_PREFIX);
+		if (!Punycode.encode(label, 0, label.length(), out) || out.length() - mark > MAX_LABEL_LENGTH) {
+			out.setLength(mark);
+			throw new IllegalArgumentException("Label is too long: " + label);
+		}
+	}
+
+	/**
+	 * Upper casing first folds the likes of the sharp s to "ss", and lower
+	 * casing char by char, out of context, folds every sigma to the same one,
+	 * as nameprep's case folding does
+	 */
+	private static String caseFold(CharSequence host, int start, int end) {
+		char[] label = host.subSequence(start, end).toString().toUpperCase(Locale.ENGLISH).toCharArray();
+		for (int i = 0; i < label.length; i++) {
+			label[i] = Character.toLowerCase(label[i]);
+		}
+		return new String(label);
+	}
+
+	private static boolean isSeparator(char c) {
+		return c == '.' || c == '\u3002' || c == '\uFF0E' || c == '\uFF61';
+	}
+
+	private static boolean isAscii(CharSequence s, int start, int end) {
+		for (int i = start; i < end; i++) {
+			if (s.charAt(i) >= 0x80) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean hasAceLabel(CharSequence host, int start, int end) {
+		int labelStart = start;
+		for (int i = start; i <= end; i++) {
+			if (i == end || host.charAt(i) == '.') {
+				if (isAceLabel(host, labelStart, i)) {
+					return true;
+				}
+				labelStart = i + 1;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isAceLabel(CharSequence host, int start, int end) {
+		if (end - start <= ACE_PREFIX.length()) {
+			return false;
+		}
+		for (int i = 0; i < ACE_PREFIX.length(); i++) {
+			char c = host.charAt(start + i);
+			if (c >= 'A' && c <= 'Z') {
+				c += 'a' - 'A';
+			}
+			if (c != ACE_PREFIX.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
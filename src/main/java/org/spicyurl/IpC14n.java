@@ -1,7 +1,5 @@
 package org.spicyurl;
 
-import org.apache.commons.lang3.StringUtils;
-
 public class IpC14n {
 
 	private static final long bit32 = (256L * 256L * 256L * 256L - 1L);
@@ -9,96 +7,394 @@ public class IpC14n {
 	private static final long bit16 = (256L * 256L - 1);
 	private static final long bit8 = (256L - 1);
 
+	private static final char OCTAT_SEP = '.';
+	private static final int MAX_OCTATS = 4;
+
+	private static final char GROUP_SEP = ':';
+	private static final char ZONE_SEP = '%';
+	private static final int MAX_GROUPS = 8;
+	private static final int MAX_GROUP_DIGITS = 4;
+
+	// Status codes of tryParseIpV4, all negative
+	static final long BLANK = -1;
+	static final long TOO_MANY_OCTATS = -2;
+	static final long BAD_FORMAT = -3;
+	static final long TOO_LARGE = -4;
+
 	public byte[] c14nIpV4(String ip) throws MalformedIpException {
-		// TODO - allow to check without exceptions if this ipv4 or not
-		if (StringUtils.isBlank(ip))
-			throw new MalformedIpException(ip, "IP can't be blank");
-
-		String[] parts = StringUtils.split(ip, '.');
-		if (parts.length > 4)
-			throw new MalformedIpException(ip, "Too much octats");
-
-		byte[] result = new byte[4];
-		long[] octats = new long[4];
-		try {
-			for (int i = 0; i < parts.length; i++) {
-				octats[i] = parseIpv4Octat(parts[i]);
-				if (i + 1 < parts.length && octats[i] > 255) {
-					throw new MalformedIpException(ip, String.format("Octat %s is too large", octats[i]));
+		int packed = c14nIpV4ToInt(ip);
+		return new byte[] { (byte) (packed >>> 24), (byte) (packed >>> 16), (byte) (packed >>> 8), (byte) packed };
+	}
+
+	/**
+	 * Canonicalizes an IPv4 address written as 1 to 4 decimal, octal (leading
+	 * <code>0</code>) or hexadecimal (leading <code>0x</code>) octats.
+	 * 
+	 * @return the address, packed big-endian into an int (so
+	 *         <code>1.2.3.4</code> is <code>0x01020304</code>)
+	 * @throws MalformedIpException
+	 *             if this is not an IPv4 address
+	 */
+	public int c14nIpV4ToInt(CharSequence ip) throws MalformedIpException {
+		long result = ip == null ? BLANK : tryParseIpV4(ip, 0, ip.length());
+		if (result < 0) {
+			throw new MalformedIpException(String.valueOf(ip), statusMessage(result));
+		}
+		return (int) result;
+	}
+
+	/**
+	 * Same as {@link #c14nIpV4ToInt(CharSequence)}, but doesn't allocate or
+	 * throw on malformed input.
+	 * 
+	 * @return the address as an unsigned int (<code>0</code> to
+	 *         <code>0xffffffffL</code>), or a negative status if this is not
+	 *         an IPv4 address
+	 */
+	public long tryParseIpV4(CharSequence ip) {
+		return tryParseIpV4(ip, 0, ip.length());
+	}
+
+	/**
+	 * Same as {@link #tryParseIpV4(CharSequence)}, for the characters between
+	 * <code>start</code> (inclusive) and <code>end</code> (exclusive).
+	 */
+	public long tryParseIpV4(CharSequence ip, int start, int end) {
+		if (isBlank(ip, start, end)) {
+			return BLANK;
+		}
+		long result = 0;
+		int octats = 0;
+		int octatStart = start;
+		for (int i = start; i <= end; i++) {
+			if (i < end && ip.charAt(i) != OCTAT_SEP) {
+				continue;
+			}
+			if (++octats > MAX_OCTATS) {
+				return TOO_MANY_OCTATS;
+			}
+			long octat = parseIpv4Octat(ip, octatStart, i);
+			if (octat < 0) {
+				return octat;
+			}
+			if (i == end) {
+				// The last octat fills all the remaining bytes
+				if (octat > maxLastOctat(octats)) {
+					return TOO_LARGE;
 				}
-				if (i + 1 < parts.length)
-					result[i] = (byte) octats[i];
+				return result | octat;
 			}
-		} catch (IllegalArgumentException e) {
-			throw new MalformedIpException(ip, e.getMessage());
+			if (octat > bit8) {
+				return TOO_LARGE;
+			}
+			result |= octat << (8 * (MAX_OCTATS - octats));
+			octatStart = i + 1;
 		}
-		long lastOctat = octats[parts.length - 1];
-		long maxOctat = -1;
-		switch (parts.length) {
+		// Unreachable, the loop always ends on i == end
+		return BAD_FORMAT;
+	}
+
+	private static long maxLastOctat(int octats) {
+		switch (octats) {
 		case 1:
-			maxOctat = bit32;
-			break;
+			return bit32;
 		case 2:
-			maxOctat = bit24;
-			break;
+			return bit24;
 		case 3:
-			maxOctat = bit16;
-			break;
-		case 4:
-			maxOctat = bit8;
+			return bit16;
+		default:
+			return bit8;
 		}
-		// (Integer.rotateRight(256, (4 - parts.length + 1) * 8) - 1);
-		if (lastOctat > maxOctat) {
-			throw new MalformedIpException(ip, String.format("Octat %s is too large", octats[parts.length - 1]));
+	}
+
+	long parseIpv4Octat(String octat) throws IllegalArgumentException {
+		long result = parseIpv4Octat(octat, 0, octat.length());
+		if (result < 0) {
+			throw new IllegalArgumentException(String.format("Octat %s: %s", octat, statusMessage(result)));
 		}
+		return result;
+	}
 
-		int j = 3;
-		while (lastOctat > 0) {
-			result[j] = (byte) (lastOctat & 255);
-			lastOctat = lastOctat >> 8;
-			j--;
+	/**
+	 * @return the octat value, or a negative status if the octat is malformed
+	 *         or larger than 32 bits
+	 */
+	private static long parseIpv4Octat(CharSequence ip, int start, int end) {
+		if (start == end) {
+			return BAD_FORMAT;
+		}
+		int radix = 10;
+		int i = start;
+		if (ip.charAt(i) == '0') {
+			if (i + 1 < end && (ip.charAt(i + 1) == 'x' || ip.charAt(i + 1) == 'X')) {
+				radix = 16;
+				i += 2;
+				if (i == end) {
+					return BAD_FORMAT;
+				}
+			} else {
+				radix = 8;
+			}
+		}
+		long result = 0;
+		for (; i < end; i++) {
+			char c = ip.charAt(i);
+			int digit = c < 128 ? Character.digit(c, radix) : -1;
+			if (digit == -1) {
+				return BAD_FORMAT;
+			}
+			result = result * radix + digit;
+			if (result > bit32) {
+				return TOO_LARGE;
+			}
 		}
+		return result;
+	}
 
+	/**
+	 * Canonicalizes an IPv6 address (without brackets), including compressed
+	 * <code>::</code> forms, embedded IPv4 tails (<code>::ffff:1.2.3.4</code>)
+	 * and zone IDs (<code>fe80::1%eth0</code>, the zone is dropped).
+	 * 
+	 * @return the 16 address bytes, in network order
+	 * @throws MalformedIpException
+	 *             if this is not an IPv6 address
+	 */
+	public byte[] c14nIpV6(String ip) throws MalformedIpException {
+		long[] address = new long[2];
+		if (ip == null || !tryParseIpV6(ip, 0, ip.length(), address)) {
+			throw new MalformedIpException(ip, "Not an IPv6 address");
+		}
+		byte[] result = new byte[16];
+		for (int i = 0; i < 8; i++) {
+			result[i] = (byte) (address[0] >>> (56 - 8 * i));
+			result[i + 8] = (byte) (address[1] >>> (56 - 8 * i));
+		}
 		return result;
 	}
 
-	long parseIpv4Octat(String octat) throws IllegalArgumentException {
-		if (StringUtils.isNumeric(octat)) {
-			int radix = 10;
-			if (StringUtils.startsWith(octat, "0")) {
-				// It is an octal octat
-				if (!StringUtils.containsOnly(octat, "01234567"))
-					throw new IllegalArgumentException(String.format("Octat %s is ocal, but contains bad numbers",
-							octat));
-				radix = 8;
+	/**
+	 * Same as {@link #c14nIpV6(String)}, for the characters between
+	 * <code>start</code> (inclusive) and <code>end</code> (exclusive), without
+	 * allocating or throwing.
+	 * 
+	 * @param result
+	 *            - receives the high 64 bits of the address at index 0, and
+	 *            the low 64 bits at index 1. May be <code>null</code> if only
+	 *            validation is required.
+	 * @return <code>true</code> iff this is an IPv6 address
+	 */
+	public boolean tryParseIpV6(CharSequence ip, int start, int end, long[] result) {
+		int addressEnd = start;
+		while (addressEnd < end && ip.charAt(addressEnd) != ZONE_SEP) {
+			addressEnd++;
+		}
+		if (addressEnd == end - 1 || addressEnd - start < 2) {
+			// Empty zone, or too short to be an address
+			return false;
+		}
+
+		// Groups before the "::" are shifted into head, groups after it into
+		// tail. Each is a 128 bit value kept as two longs.
+		long headHi = 0, headLo = 0, tailHi = 0, tailLo = 0;
+		int groups = 0;
+		int compressedAt = -1;
+		int i = start;
+		if (ip.charAt(i) == GROUP_SEP) {
+			if (ip.charAt(i + 1) != GROUP_SEP) {
+				return false;
+			}
+			compressedAt = 0;
+			i += 2;
+		}
+		while (i < addressEnd) {
+			int groupStart = i;
+			int value = 0;
+			for (int digit; i < addressEnd && i - groupStart <= MAX_GROUP_DIGITS
+					&& (digit = PercentCodec.hexDigit(ip.charAt(i))) != -1; i++) {
+				value = (value << 4) | digit;
+			}
+
+			int added;
+			long v4 = -1;
+			if (i < addressEnd && ip.charAt(i) == OCTAT_SEP) {
+				// Embedded IPv4 tail, must be the last part
+				v4 = parseDottedQuad(ip, groupStart, addressEnd);
+				if (v4 < 0) {
+					return false;
+				}
+				added = 2;
+				i = addressEnd;
+			} else {
+				if (i == groupStart || i - groupStart > MAX_GROUP_DIGITS) {
+					return false;
+				}
+				added = 1;
+			}
+			groups += added;
+			if (groups > MAX_GROUPS) {
+				return false;
+			}
+			for (int g = added - 1; g >= 0; g--) {
+				long group = v4 < 0 ? value : (v4 >>> (16 * g)) & 0xffff;
+				if (compressedAt == -1) {
+					headHi = (headHi << 16) | (headLo >>> 48);
+					headLo = (headLo << 16) | group;
+				} else {
+					tailHi = (tailHi << 16) | (tailLo >>> 48);
+					tailLo = (tailLo << 16) | group;
+				}
+			}
+
+			if (i == addressEnd) {
+				break;
+			}
+			if (ip.charAt(i) != GROUP_SEP || ++i == addressEnd) {
+				// Bad char, or a trailing single ':'
+				return false;
+			}
+			if (ip.charAt(i) == GROUP_SEP) {
+				if (compressedAt != -1) {
+					return false;
+				}
+				compressedAt = groups;
+				i++;
+			}
+		}
 
+		if (compressedAt == -1 ? groups != MAX_GROUPS : groups == MAX_GROUPS) {
+			return false;
+		}
+		if (result != null) {
+			if (compressedAt != -1) {
+				// Tail groups are already at the bottom, move the head groups
+				// past the zeros the "::" stands for
+				int shift = 16 * (MAX_GROUPS - compressedAt);
+				if (shift >= 128) {
+					headHi = 0;
+					headLo = 0;
+				} else if (shift >= 64) {
+					headHi = headLo << (shift - 64);
+					headLo = 0;
+				} else {
+					headHi = (headHi << shift) | (headLo >>> (64 - shift));
+					headLo = headLo << shift;
+				}
 			}
-			try {
-				long r = Long.parseLong(octat, radix);
-				if (r > bit32) {
-					throw new IllegalArgumentException(String.format("Octat %s is too large", octat));
+			result[0] = headHi | tailHi;
+			result[1] = headLo | tailLo;
+		}
+		return true;
+	}
+
+	/**
+	 * Appends the dotted decimal form of an IPv4 address
+	 * 
+	 * @param ip
+	 *            - the address, as returned by {@link #tryParseIpV4}
+	 */
+	static void appendIpV4(StringBuilder sb, long ip) {
+		sb.append((ip >>> 24) & 0xff).append(OCTAT_SEP).append((ip >>> 16) & 0xff).append(OCTAT_SEP)
+				.append((ip >>> 8) & 0xff).append(OCTAT_SEP).append(ip & 0xff);
+	}
+
+	/**
+	 * Appends the RFC 5952 text form of an IPv6 address: lower case, no
+	 * leading zeros, and the longest run of two or more zero groups (the first
+	 * one, on a tie) compressed to <code>::</code>
+	 * 
+	 * @param hi
+	 *            - the high 64 bits of the address
+	 * @param lo
+	 *            - the low 64 bits of the address
+	 */
+	static void appendIpV6(StringBuilder sb, long hi, long lo) {
+		int bestStart = -1, bestLength = 1;
+		for (int i = 0, runStart = -1; i <= MAX_GROUPS; i++) {
+			if (i < MAX_GROUPS && ipV6Group(hi, lo, i) == 0) {
+				if (runStart == -1) {
+					runStart = i;
+				}
+			} else if (runStart != -1) {
+				if (i - runStart > bestLength) {
+					bestStart = runStart;
+					bestLength = i - runStart;
 				}
-				return r;
-			} catch (NumberFormatException e) {
-				throw new IllegalArgumentException(String.format("Octat %s is too large", octat));
+				runStart = -1;
+			}
+		}
+		for (int i = 0; i < MAX_GROUPS; i++) {
+			if (i == bestStart) {
+				sb.append(GROUP_SEP).append(GROUP_SEP);
+				i += bestLength - 1;
+				continue;
 			}
+			if (i > 0 && i != bestStart + bestLength) {
+				sb.append(GROUP_SEP);
+			}
+			sb.append(Integer.toHexString(ipV6Group(hi, lo, i)));
 		}
-		if (!StringUtils.startsWithIgnoreCase(octat, "0x"))
-			throw new IllegalArgumentException("Octat %s is in unfamilier format");
+	}
 
-		octat = StringUtils.substring(octat, 2);
-		if (!StringUtils.containsOnly(octat, "0123456789abcdefABCDEF"))
-			throw new IllegalArgumentException(
-					String.format("Octat %s is hexadecimal, but contains bad numbers", octat));
+	private static int ipV6Group(long hi, long lo, int group) {
+		long half = group < 4 ? hi : lo;
+		return (int) (half >>> (16 * (3 - (group & 3)))) & 0xffff;
+	}
+
+	/**
+	 * Parses a strict dotted quad (4 decimal octats, no leading zeros), as
+	 * allowed in the IPv4 tail of an IPv6 address.
+	 * 
+	 * @return the address as an unsigned int, or -1 if malformed
+	 */
+	private static long parseDottedQuad(CharSequence ip, int start, int end) {
+		long result = 0;
+		int octats = 0;
+		int octat = 0;
+		int digits = 0;
+		for (int i = start; i <= end; i++) {
+			char c = i < end ? ip.charAt(i) : OCTAT_SEP;
+			if (c == OCTAT_SEP) {
+				if (digits == 0 || ++octats > MAX_OCTATS) {
+					return -1;
+				}
+				result = (result << 8) | octat;
+				octat = 0;
+				digits = 0;
+			} else if (c >= '0' && c <= '9') {
+				if (digits == 1 && octat == 0) {
+					return -1;
+				}
+				octat = octat * 10 + (c - '0');
+				if (++digits > 3 || octat > bit8) {
+					return -1;
+				}
+			} else {
+				return -1;
+			}
+		}
+		return octats == MAX_OCTATS ? result : -1;
+	}
 
-		try {
-			long r = Long.parseLong(octat, 16);
-			if (r > bit32) {
-				throw new IllegalArgumentException(String.format("Octat %s is too large", octat));
+	private static boolean isBlank(CharSequence s, int start, int end) {
+		for (int i = start; i < end; i++) {
+			if (!Character.isWhitespace(s.charAt(i))) {
+				return false;
 			}
-			return r;
-		} catch (NumberFormatException e) {
-			throw new IllegalArgumentException(String.format("Octat %s is too large", octat));
 		}
+		return true;
+	}
+
+	static String statusMessage(long status) {
+		if (status == BLANK) {
+			return "IP can't be blank";
+		}
+		if (status == TOO_MANY_OCTATS) {
+			return "Too much octats";
+		}
+		if (status == TOO_LARGE) {
+			return "Octat is too large";
+		}
+		return "Octat is in unfamilier format";
 	}
 }
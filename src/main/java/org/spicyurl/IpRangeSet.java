@@ -0,0 +1,226 @@
+/*******************************************************************************
+ * Copyright 2012 Yonatan Graber
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.spicyurl;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+
+/**
+ * A set of IPv4 addresses, built in bulk from CIDR blocks such as
+ * <code>10.0.0.0/8</code> or single addresses, for matching hosts against
+ * block lists.
+ * <p>
+ * The blocks are sorted and merged into disjoint ranges, kept in two int
+ * arrays of range starts and ends, so a lookup is a binary search over
+ * about <code>log2(size())</code> ints, and nothing is allocated. Addresses
+ * are parsed by {@link IpC14n}, in any of the forms it accepts.
+ * <p>
+ * Immutable and thread safe.
+ */
+public final class IpRangeSet {
+
+	private static final IpC14n IP_C14N = new IpC14n();
+	private static final int MAX_PREFIX_LENGTH = 32;
+
+	/**
+	 * The first and last addresses of each range, in ascending order. They
+	 * are stored with their sign bit flipped, so the signed comparison of
+	 * the stored ints is the unsigned comparison of the addresses.
+	 */
+	private final int[] starts;
+	private final int[] ends;
+
+	private IpRangeSet(long[] ranges, int count) {
+		Arrays.sort(ranges, 0, count);
+		int[] starts = new int[count];
+		int[] ends = new int[count];
+		int size = 0;
+		for (int i = 0; i < count; i++) {
+			int start = (int) (ranges[i] >> 32);
+			int end = (int) ranges[i] ^ Integer.MIN_VALUE;
+			if (size > 0 && start <= ends[size - 1] + 1L) {
+				// Overlapping or adjacent to the previous range
+				ends[size - 1] = Math.max(ends[size - 1], end);
+			} else {
+				starts[size] = start;
+				ends[size] = end;
+				size++;
+			}
+		}
+		this.starts = Arrays.copyOf(starts, size);
+		this.ends = Arrays.copyOf(ends, size);
+	}
+
+	/**
+	 * @param blocks
+	 *            - CIDR blocks (<code>192.168.0.0/16</code>) or single
+	 *            addresses. Host bits of a block's address are ignored.
+	 * @throws MalformedIpException
+	 *             if a block is malformed
+	 */
+	public static IpRangeSet of(Iterable<? extends CharSequence> blocks) {
+		Ranges ranges = new Ranges();
+		for (CharSequence block : blocks) {
+			ranges.add(block);
+		}
+		return ranges.build();
+	}
+
+	/**
+	 * Loads a file of a CIDR block or an address per line; see
+	 * {@link #load(Reader)}
+	 */
+	public static IpRangeSet load(File file) throws IOException {
+		Reader reader = Files.newReader(file, Charsets.UTF_8);
+		try {
+			return load(reader);
+		} finally {
+			Closeables.closeQuietly(reader);
+		}
+	}
+
+	/**
+	 * Loads a CIDR block or an address per line. Blank lines, and anything
+	 * from a <code>#</code> to the end of its line, are ignored. The reader
+	 * is not closed.
+	 * 
+	 * @throws MalformedIpException
+	 *             if a block is malformed
+	 */
+	public static IpRangeSet load(Reader reader) throws IOException {
+		BufferedReader lines = new BufferedReader(reader);
+		Ranges ranges = new Ranges();
+		String line;
+		while ((line = lines.readLine()) != null) {
+			int comment = line.indexOf('#');
+			line = (comment == -1 ? line : line.substring(0, comment)).trim();
+			if (!line.isEmpty()) {
+				ranges.add(line);
+			}
+		}
+		return ranges.build();
+	}
+
+	/**
+	 * @param address
+	 *            - an IPv4 address, packed big-endian as
+	 *            {@link IpC14n#c14nIpV4ToInt(CharSequence)} does
+	 */
+	public boolean contains(int address) {
+		int key = address ^ Integer.MIN_VALUE;
+		// The last range starting at or before the address
+		int low = 0;
+		int high = starts.length - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (starts[mid] <= key) {
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return high >= 0 && key <= ends[high];
+	}
+
+	/**
+	 * @return <code>true</code> iff the IPv4 address is in the set;
+	 *         <code>false</code> if it is not an IPv4 address
+	 */
+	public boolean contains(CharSequence ip) {
+		long address = IP_C14N.tryParseIpV4(ip, 0, ip.length());
+		return address >= 0 && contains((int) address);
+	}
+
+	/**
+	 * @return <code>true</code> iff the host of the URL is an IPv4 address
+	 *         in the set
+	 */
+	public boolean contains(Url url) {
+		int start = url.start(UrlParser.HOST);
+		if (start == -1) {
+			return false;
+		}
+		long address = IP_C14N.tryParseIpV4(url.getSource(), start, url.end(UrlParser.HOST));
+		return address >= 0 && contains((int) address);
+	}
+
+	/**
+	 * @return the number of disjoint ranges the blocks were merged into
+	 */
+	public int size() {
+		return starts.length;
+	}
+
+	/**
+	 * Blocks collected for a bulk build, each as a long of its flipped first
+	 * address (high int) and last address (low int), so that the longs sort
+	 * by first address
+	 */
+	private static final class Ranges {
+		private long[] ranges = new long[64];
+		private int count;
+
+		void add(CharSequence block) {
+			Preconditions.checkNotNull(block);
+			int slash = block.length() - 1;
+			while (slash >= 0 && block.charAt(slash) != '/') {
+				slash--;
+			}
+			int addressEnd = slash == -1 ? block.length() : slash;
+			long address = IP_C14N.tryParseIpV4(block, 0, addressEnd);
+			if (address < 0) {
+				throw new MalformedIpException(block.toString(), IpC14n.statusMessage(address));
+			}
+			int prefixLength = slash == -1 ? MAX_PREFIX_LENGTH : parsePrefixLength(block, slash + 1);
+			int mask = prefixLength == 0 ? 0 : -1 << (MAX_PREFIX_LENGTH - prefixLength);
+			int first = (int) address & mask;
+			int last = first | ~mask;
+			if (count == ranges.length) {
+				ranges = Arrays.copyOf(ranges, count * 2);
+			}
+			ranges[count++] = (long) (first ^ Integer.MIN_VALUE) << 32 | (last & 0xffffffffL);
+		}
+
+		IpRangeSet build() {
+			return new IpRangeSet(ranges, count);
+		}
+
+		private static int parsePrefixLength(CharSequence block, int start) {
+			int length = 0;
+			int end = block.length();
+			for (int i = start; i < end; i++) {
+				char c = block.charAt(i);
+				if (c < '0' || c > '9' || i - start >= 2) {
+					length = -1;
+					break;
+				}
+				length = length * 10 + c - '0';
+			}
+			if (start == end || length < 0 || length > MAX_PREFIX_LENGTH) {
+				throw new MalformedIpException(block.toString(), "Prefix length is invalid");
+			}
+			return length;
+		}
+	}
+}
@@ -0,0 +1,310 @@
+/*******************************************************************************
+ * Copyright 2012 Yonatan Graber
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.spicyurl;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Streams the URLs of a newline-delimited file (one URL per line, UTF-8 or
+ * ASCII), scanning the bytes with {@link UrlParser} directly instead of
+ * decoding every line into a String first. The file is memory mapped, and
+ * copied from the mapping in bulk into a chunk on the heap, which the line
+ * and URL scans read as a plain array.
+ * <p>
+ * The reader is a cursor: {@link #next()} moves to the next non blank line,
+ * and the current line's validation errors and component byte ranges are
+ * then available without any allocation. Components are decoded only when
+ * asked for with {@link #get(UrlComponent)}, and {@link #toUrl()} creates a
+ * {@link Url} view over the bytes of the line that decodes its components
+ * lazily.
+ * <p>
+ * The file is mapped in windows, so files larger than 2GB are supported. A
+ * line longer than a chunk grows the chunk. The chunk is reused for the next
+ * bytes of the file, unless a Url was created over it, so no allocation is
+ * needed per line. Mapped windows are released by the garbage collector once
+ * the reader no longer refers to them. Not thread safe.
+ */
+public class MappedUrlReader implements Closeable {
+
+	static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+	private static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+	private static final byte LF = '\n';
+	private static final byte CR = '\r';
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final long fileSize;
+	private final int windowSize;
+
+	private MappedByteBuffer window;
+	private long windowStart;
+	private int windowLength;
+
+	/**
+	 * The bytes of the file from <code>chunkStart</code>, copied from the
+	 * windows
+	 */
+	private byte[] chunk;
+	private ByteBuffer chunkBuffer;
+	private long chunkStart;
+	private int chunkLength;
+
+	/**
+	 * Set once a view over the chunk is handed out, so that the chunk is not
+	 * overwritten
+	 */
+	private boolean chunkShared;
+
+	/**
+	 * Offset of the next line within the chunk
+	 */
+	private int nextLine;
+
+	private final ByteSequence line = new ByteSequence(null, 0, 0);
+	private long lineOffset = -1;
+	private final int[] bounds = new int[UrlParser.BOUNDS_LENGTH];
+	private int errors;
+
+	public MappedUrlReader(File file) throws IOException {
+		this(file, DEFAULT_WINDOW_SIZE);
+	}
+
+	MappedUrlReader(File file, int windowSize) throws IOException {
+		Preconditions.checkArgument(windowSize > 0);
+		this.file = new RandomAccessFile(Preconditions.checkNotNull(file), "r");
+		this.channel = this.file.getChannel();
+		this.fileSize = channel.size();
+		this.windowSize = windowSize;
+		this.chunk = new byte[Math.min(DEFAULT_CHUNK_SIZE, windowSize)];
+		this.chunkBuffer = ByteBuffer.wrap(chunk);
+	}
+
+	/**
+	 * Moves to the next non blank line, and parses it.
+	 * 
+	 * @return <code>false</code> at the end of the file
+	 */
+	public boolean next() throws IOException {
+		if (!nextLine()) {
+			return false;
+		}
+		errors = UrlParser.parse(line, bounds);
+		return true;
+	}
+
+	/**
+	 * Moves to the next non blank line without parsing it, for callers which
+	 * parse the lines elsewhere.
+	 * 
+	 * @return <code>false</code> at the end of the file
+	 */
+	boolean nextLine() throws IOException {
+		byte[] bytes = chunk;
+		while (true) {
+			if (nextLine == chunkLength) {
+				if (!fill()) {
+					return false;
+				}
+				bytes = chunk;
+			}
+			int end = nextLine;
+			while (end < chunkLength && bytes[end] != LF) {
+				end++;
+			}
+			if (end == chunkLength && chunkStart + chunkLength < fileSize) {
+				// The line continues past the chunk
+				fill();
+				bytes = chunk;
+				continue;
+			}
+			int start = nextLine;
+			nextLine = end == chunkLength ? end : end + 1;
+			if (end > start && bytes[end - 1] == CR) {
+				end--;
+			}
+			if (!isBlank(bytes, start, end)) {
+				lineOffset = chunkStart + start;
+				line.set(chunkBuffer, start, end - start);
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Moves the chunk to start at the next line, keeping the bytes of the
+	 * line read so far, and fills the rest of it from the file. The chunk
+	 * doubles if it is full with a single line.
+	 * 
+	 * @return <code>false</code> at the end of the file
+	 */
+	private boolean fill() throws IOException {
+		long position = chunkStart + nextLine;
+		if (position >= fileSize) {
+			return false;
+		}
+		int kept = chunkLength - nextLine;
+		byte[] bytes = chunk;
+		if (kept == chunk.length) {
+			bytes = new byte[(int) Math.min(Integer.MAX_VALUE - 8, 2L * chunk.length)];
+		} else if (chunkShared) {
+			bytes = new byte[chunk.length];
+		}
+		System.arraycopy(chunk, nextLine, bytes, 0, kept);
+		int length = (int) Math.min(bytes.length, fileSize - position);
+		copy(position + kept, bytes, kept, length - kept);
+		if (bytes != chunk) {
+			chunk = bytes;
+			chunkBuffer = ByteBuffer.wrap(bytes);
+			chunkShared = false;
+		}
+		chunkStart = position;
+		chunkLength = length;
+		nextLine = 0;
+		return true;
+	}
+
+	/**
+	 * Copies <code>length</code> bytes of the file from
+	 * <code>position</code> into <code>bytes</code>, mapping the windows
+	 * they are in
+	 */
+	private void copy(long position, byte[] bytes, int offset, int length) throws IOException {
+		while (length > 0) {
+			if (window == null || position < windowStart || position >= windowStart + windowLength) {
+				windowStart = position;
+				windowLength = (int) Math.min(windowSize, fileSize - position);
+				window = channel.map(MapMode.READ_ONLY, windowStart, windowLength);
+			}
+			int count = (int) Math.min(length, windowStart + windowLength - position);
+			ByteBuffer source = window.duplicate();
+			source.position((int) (position - windowStart));
+			source.get(bytes, offset, count);
+			position += count;
+			offset += count;
+			length -= count;
+		}
+	}
+
+	private static boolean isBlank(byte[] bytes, int start, int end) {
+		for (int i = start; i < end; i++) {
+			// Bytes are signed, and UTF-8 bytes of non-ASCII chars are not blank
+			if ((bytes[i] & 0xff) > ' ') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the offset of the current line in the file
+	 */
+	public long getOffset() {
+		checkLine();
+		return lineOffset;
+	}
+
+	/**
+	 * @return the length of the current line, in bytes
+	 */
+	public int getLength() {
+		checkLine();
+		return line.length();
+	}
+
+	/**
+	 * @return the validation errors of the current line, as a bitmask of
+	 *         {@link UrlErrors#mask()}
+	 */
+	public int getErrorMask() {
+		checkLine();
+		return errors;
+	}
+
+	public boolean isValid() {
+		return getErrorMask() == 0;
+	}
+
+	/**
+	 * @return the start offset (inclusive) of the component within the current
+	 *         line, in bytes, or -1 if it is absent
+	 */
+	public int getStart(UrlComponent component) {
+		checkLine();
+		return bounds[component.ordinal() * 2];
+	}
+
+	/**
+	 * @return the end offset (exclusive) of the component within the current
+	 *         line, in bytes, or -1 if it is absent
+	 */
+	public int getEnd(UrlComponent component) {
+		checkLine();
+		return bounds[component.ordinal() * 2 + 1];
+	}
+
+	public int getPort() {
+		checkLine();
+		return bounds[UrlParser.PORT_VALUE];
+	}
+
+	/**
+	 * @return the component of the current line, decoded, or
+	 *         <code>null</code> if it is absent
+	 */
+	public String get(UrlComponent component) {
+		checkLine();
+		return UrlParser.component(line, bounds, component.ordinal());
+	}
+
+	/**
+	 * @return the current line as a {@link Url} over its bytes, which
+	 *         decodes its components only when they are read
+	 */
+	public Url toUrl() {
+		checkLine();
+		chunkShared = true;
+		return new Url(line.subSequence(0, line.length()), bounds.clone(), errors);
+	}
+
+	/**
+	 * @return a view over the bytes of the current line, which stays valid
+	 *         when the reader moves on or is closed
+	 */
+	CharSequence getLine() {
+		checkLine();
+		chunkShared = true;
+		return line.subSequence(0, line.length());
+	}
+
+	private void checkLine() {
+		Preconditions.checkState(lineOffset != -1, "next() was not called");
+	}
+
+	@Override
+	public void close() throws IOException {
+		file.close();
+	}
+}
@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Copyright 2012 Yonatan Graber
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.spicyurl;
+
+/**
+ * Streaming MurmurHash3, x64 128-bit variant with a seed of 0, over the
+ * UTF-8 bytes of the chars put into it. The result is the same as Guava's
+ * <code>Hashing.murmur3_128().hashString(chars, Charsets.UTF_8)</code>,
+ * with {@link #h1()} being its <code>asLong()</code>.
+ * <p>
+ * Chars are encoded and mixed as they come, 16 bytes at a time, so nothing
+ * is buffered but the last partial block. Not thread safe.
+ */
+final class Murmur3Hasher {
+
+	private static final long C1 = 0x87c37b91114253d5L;
+	private static final long C2 = 0x4cf5ad432745937fL;
+
+	private long h1;
+	private long h2;
+
+	/*
+	 * The partial block, little-endian
+	 */
+	private long k1;
+	private long k2;
+	private int blockLength;
+	private long length;
+
+	/**
+	 * A high surrogate waiting for its low surrogate
+	 */
+	private char highSurrogate;
+	private boolean finished;
+
+	Murmur3Hasher putChars(CharSequence s, int start, int end) {
+		for (int i = start; i < end; i++) {
+			putChar(s.charAt(i));
+		}
+		return this;
+	}
+
+	Murmur3Hasher putChar(char c) {
+		if (highSurrogate != 0) {
+			char high = highSurrogate;
+			highSurrogate = 0;
+			if (Character.isLowSurrogate(c)) {
+				int codePoint = Character.toCodePoint(high, c);
+				putByte(0xf0 | codePoint >>> 18);
+				putByte(0x80 | (codePoint >>> 12 & 0x3f));
+				putByte(0x80 | (codePoint >>> 6 & 0x3f));
+				putByte(0x80 | (codePoint & 0x3f));
+				return this;
+			}
+			// An unpaired surrogate, which String.getBytes() encodes as '?'
+			putByte('?');
+		}
+		if (c < 0x80) {
+			putByte(c);
+		} else if (c < 0x800) {
+			putByte(0xc0 | c >>> 6);
+			putByte(0x80 | (c & 0x3f));
+		} else if (Character.isHighSurrogate(c)) {
+			highSurrogate = c;
+		} else if (Character.isLowSurrogate(c)) {
+			putByte('?');
+		} else {
+			putByte(0xe0 | c >>> 12);
+			putByte(0x80 | (c >>> 6 & 0x3f));
+			putByte(0x80 | (c & 0x3f));
+		}
+		return this;
+	}
+
+	private void putByte(int b) {
+		long value = b & 0xffL;
+		if (blockLength < 8) {
+			k1 |= value << (blockLength * 8);
+		} else {
+			k2 |= value << ((blockLength - 8) * 8);
+		}
+		length++;
+		if (++blockLength == 16) {
+			mixBlock();
+			k1 = 0;
+			k2 = 0;
+			blockLength = 0;
+		}
+	}
+
+	/**
+	 * @return the first 64 bits of the hash, which is the 64-bit
+	 *         fingerprint. Ends the input.
+	 */
+	long h1() {
+		finish();
+		return h1;
+	}
+
+	/**
+	 * @return the last 64 bits of the hash. Ends the input.
+	 */
+	long h2() {
+		finish();
+		return h2;
+	}
+
+	private void finish() {
+		if (finished) {
+			return;
+		}
+		finished = true;
+		if (highSurrogate != 0) {
+			highSurrogate = 0;
+			putByte('?');
+		}
+		if (blockLength > 0) {
+			h1 ^= mixK1(k1);
+			h2 ^= mixK2(k2);
+		}
+		h1 ^= length;
+		h2 ^= length;
+		h1 += h2;
+		h2 += h1;
+		h1 = fmix64(h1);
+		h2 = fmix64(h2);
+		h1 += h2;
+		h2 += h1;
+	}
+
+	private void mixBlock() {
+		h1 ^= mixK1(k1);
+		h1 = Long.rotateLeft(h1, 27);
+		h1 += h2;
+		h1 = h1 * 5 + 0x52dce729;
+		h2 ^= mixK2(k2);
+		h2 = Long.rotateLeft(h2, 31);
+		h2 += h1;
+		h2 = h2 * 5 + 0x38495ab5;
+	}
+
+	private static long mixK1(long k1) {
+		k1 *= C1;
+		k1 = Long.rotateLeft(k1, 31);
+		return k1 * C2;
+	}
+
+	private static long mixK2(long k2) {
+		k2 *= C2;
+		k2 = Long.rotateLeft(k2, 33);
+		return k2 * C1;
+	}
+
+	private static long fmix64(long k) {
+		k ^= k >>> 33;
+		k *= 0xff51afd7ed558ccdL;
+		k ^= k >>> 33;
+		k *= 0xc4ceb9fe1a85ec53L;
+		k ^= k >>> 33;
+		return k;
+	}
+}
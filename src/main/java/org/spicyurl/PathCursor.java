@@ -0,0 +1,217 @@
+/*******************************************************************************
+ * Copyright 2012 Yonatan Graber
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.spicyurl;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A reusable cursor over the segments of a URL path, as offsets into the
+ * URL as given. Segments are compared in place, and only cut or decoded
+ * when asked for, so routing on a path allocates nothing.
+ * <p>
+ * The path is the part after the '/' that follows the authority, so
+ * <code>http://abc.com/a/b/</code> has the segments <code>a</code>,
+ * <code>b</code> and an empty one, <code>http://abc.com/</code> has a
+ * single empty segment, and <code>http://abc.com</code> has none. Dot
+ * segments are iterated as they are; {@link Url#appendResolvedPath} removes
+ * them into a buffer, which the cursor can then iterate with
+ * {@link #reset(CharSequence)}.
+ * <p>
+ * Not thread safe; reuse one per thread.
+ */
+public final class PathCursor {
+
+	private static final char PATH_SEP_CHAR = '/';
+
+	private CharSequence source;
+	private int end;
+	private int segmentStart;
+	private int segmentEnd;
+
+	public PathCursor() {
+		reset("", -1, -1);
+	}
+
+	/**
+	 * Moves the cursor to before the first segment of the URL's path
+	 */
+	public PathCursor reset(Url url) {
+		return reset(url.getSource(), url.start(UrlParser.PATH), url.end(UrlParser.PATH));
+	}
+
+	/**
+	 * Moves the cursor to before the first segment of <code>path</code>,
+	 * which has no leading '/', like the one {@link Url#getPath()} returns
+	 */
+	public PathCursor reset(CharSequence path) {
+		return reset(Preconditions.checkNotNull(path), 0, path.length());
+	}
+
+	private PathCursor reset(CharSequence source, int start, int end) {
+		this.source = source;
+		this.end = end;
+		this.segmentStart = start;
+		// Positioned as if after a segment that ended right before the path,
+		// or at its end if there is no path
+		this.segmentEnd = start == -1 ? end : start - 1;
+		return this;
+	}
+
+	/**
+	 * Moves to the next segment.
+	 * 
+	 * @return <code>false</code> if there are no more segments
+	 */
+	public boolean next() {
+		if (segmentEnd >= end) {
+			segmentStart = segmentEnd = end;
+			return false;
+		}
+		int i = segmentEnd + 1;
+		segmentStart = i;
+		while (i < end && source.charAt(i) != PATH_SEP_CHAR) {
+			i++;
+		}
+		segmentEnd = i;
+		return true;
+	}
+
+	/**
+	 * @return the start offset (inclusive) of the current segment
+	 */
+	public int getStart() {
+		return segmentStart;
+	}
+
+	/**
+	 * @return the end offset (exclusive) of the current segment
+	 */
+	public int getEnd() {
+		return segmentEnd;
+	}
+
+	public int length() {
+		return segmentEnd - segmentStart;
+	}
+
+	/**
+	 * @return <code>true</code> iff the current segment is
+	 *         <code>segment</code>, as it is in the URL (with no decoding).
+	 *         Over the bytes of a URL, only ASCII segments can be equal.
+	 */
+	public boolean segmentEquals(CharSequence segment) {
+		if (segment.length() != segmentEnd - segmentStart) {
+			return false;
+		}
+		for (int i = segmentStart; i < segmentEnd; i++) {
+			if (source.charAt(i) != segment.charAt(i - segmentStart)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return <code>true</code> iff the current segment is "." or ".."
+	 */
+	public boolean isDotSegment() {
+		return dots(source, segmentStart, segmentEnd) != 0;
+	}
+
+	/**
+	 * @return the current segment, as it is in the URL
+	 */
+	public String getSegment() {
+		if (source instanceof ByteSequence) {
+			return ((ByteSequence) source).substring(segmentStart, segmentEnd);
+		}
+		return source.subSequence(segmentStart, segmentEnd).toString();
+	}
+
+	/**
+	 * @return the current segment, decoded with
+	 *         {@link PercentCodec#PATH_SEGMENT}
+	 */
+	public String getDecodedSegment() {
+		return PercentCodec.PATH_SEGMENT.decode(source, segmentStart, segmentEnd);
+	}
+
+	/**
+	 * Removes the dot segments (RFC 3986 section 5.2.4) of the absolute path
+	 * between <code>start</code> and <code>end</code>, which starts with a
+	 * '/', and appends the result.
+	 */
+	static void removeDotSegments(CharSequence path, int start, int end, StringBuilder out) {
+		int base = out.length();
+		int segmentStart = start + 1;
+		while (true) {
+			int segmentEnd = segmentStart;
+			while (segmentEnd < end && path.charAt(segmentEnd) != PATH_SEP_CHAR) {
+				segmentEnd++;
+			}
+			boolean last = segmentEnd >= end;
+			int dots = dots(path, segmentStart, segmentEnd);
+			if (dots == 2) {
+				int parent = out.length() - 1;
+				while (parent >= base && out.charAt(parent) != PATH_SEP_CHAR) {
+					parent--;
+				}
+				out.setLength(Math.max(base, parent));
+			}
+			if (dots == 0) {
+				out.append(PATH_SEP_CHAR).append(path, segmentStart, segmentEnd);
+			} else if (last) {
+				out.append(PATH_SEP_CHAR);
+			}
+			if (last) {
+				return;
+			}
+			segmentStart = segmentEnd + 1;
+		}
+	}
+
+	/**
+	 * @return <code>true</code> iff the path between <code>start</code> and
+	 *         <code>end</code> has a "." or ".." segment
+	 */
+	static boolean hasDotSegments(CharSequence path, int start, int end) {
+		for (int segmentStart = start, i = start; i <= end; i++) {
+			if (i == end || path.charAt(i) == PATH_SEP_CHAR) {
+				if (dots(path, segmentStart, i) != 0) {
+					return true;
+				}
+				segmentStart = i + 1;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return 1 for a "." segment, 2 for a ".." segment, 0 otherwise
+	 */
+	private static int dots(CharSequence path, int start, int end) {
+		int length = end - start;
+		if (length == 0 || length > 2) {
+			return 0;
+		}
+		for (int i = start; i < end; i++) {
+			if (path.charAt(i) != '.') {
+				return 0;
+			}
+		}
+		return length;
+	}
+}
@@ -0,0 +1,335 @@
+/*******************************************************************************
+ * Copyright 2012 Yonatan Graber
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.spicyurl;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+
+/**
+ * Percent-encoding (RFC 3986 section 2.1) of URL components. Each codec has
+ * a precomputed table of the ASCII chars its component may hold as they
+ * are; everything else is encoded as the %XX escapes of its UTF-8 bytes,
+ * with upper case hex digits. Decoding turns escapes back into UTF-8
+ * chars; malformed escapes are kept as they are.
+ * <p>
+ * Both directions first scan for a char that needs work, and return the
+ * input unchanged (the same instance for a String) or copy it in bulk when
+ * there is none. Output can go to a caller's {@link StringBuilder} or
+ * {@link CharBuffer}. Thread safe.
+ */
+public final class PercentCodec {
+
+	private static final String ALPHA_DIGIT = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+	private static final String UNRESERVED = ALPHA_DIGIT + "-._~";
+	private static final String SUB_DELIMS = "!$&'()*+,;=";
+	private static final String PCHAR = UNRESERVED + SUB_DELIMS + ":@";
+	private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+	/**
+	 * A single path segment: pchar
+	 */
+	public static final PercentCodec PATH_SEGMENT = new PercentCodec(PCHAR, false);
+
+	/**
+	 * A path of segments: pchar and '/'
+	 */
+	public static final PercentCodec PATH = new PercentCodec(PCHAR + "/", false);
+
+	/**
+	 * A whole query: pchar, '/' and '?'
+	 */
+	public static final PercentCodec QUERY = new PercentCodec(PCHAR + "/?", false);
+
+	/**
+	 * A key or value of a query parameter, as form data: a space is a '+',
+	 * and the '&', '=' and '+' delimiters are encoded
+	 */
+	public static final PercentCodec QUERY_PARAMETER = new PercentCodec(UNRESERVED + "!$'()*,;:@/?", true);
+
+	/**
+	 * A fragment: pchar, '/' and '?'
+	 */
+	public static final PercentCodec FRAGMENT = new PercentCodec(PCHAR + "/?", false);
+
+	/**
+	 * Chars kept as they are when encoding
+	 */
+	private final boolean[] safe = new boolean[128];
+
+	/**
+	 * Whether a space is a '+'
+	 */
+	private final boolean form;
+
+	private PercentCodec(String safeChars, boolean form) {
+		for (int i = 0; i < safeChars.length(); i++) {
+			safe[safeChars.charAt(i)] = true;
+		}
+		this.form = form;
+	}
+
+	/**
+	 * @return the encoded string; <code>s</code> itself if nothing needs
+	 *         encoding
+	 */
+	public String encode(String s) {
+		int first = firstToEncode(s, 0, s.length());
+		if (first == s.length()) {
+			return s;
+		}
+		StringBuilder sb = new StringBuilder(s.length() + 16);
+		sb.append(s, 0, first);
+		appendEncoded(s, first, s.length(), sb);
+		return sb.toString();
+	}
+
+	/**
+	 * Appends the encoded chars between <code>start</code> (inclusive) and
+	 * <code>end</code> (exclusive)
+	 */
+	public void encode(CharSequence s, int start, int end, StringBuilder out) {
+		Preconditions.checkPositionIndexes(start, end, s.length());
+		int first = firstToEncode(s, start, end);
+		out.append(s, start, first);
+		if (first < end) {
+			appendEncoded(s, first, end, out);
+		}
+	}
+
+	/**
+	 * Puts the encoded chars between <code>start</code> (inclusive) and
+	 * <code>end</code> (exclusive)
+	 * 
+	 * @throws java.nio.BufferOverflowException
+	 *             if they do not fit
+	 */
+	public void encode(CharSequence s, int start, int end, CharBuffer out) {
+		Preconditions.checkPositionIndexes(start, end, s.length());
+		int first = firstToEncode(s, start, end);
+		out.append(s, start, first);
+		if (first < end) {
+			appendEncoded(s, first, end, out);
+		}
+	}
+
+	/**
+	 * @return the decoded string; <code>s</code> itself if nothing needs
+	 *         decoding
+	 */
+	public String decode(String s) {
+		int first = firstToDecode(s, 0, s.length());
+		if (first == s.length()) {
+			return s;
+		}
+		StringBuilder sb = new StringBuilder(s.length());
+		sb.append(s, 0, first);
+		appendDecoded(s, first, s.length(), sb);
+		return sb.toString();
+	}
+
+	/**
+	 * Appends the decoded chars between <code>start</code> (inclusive) and
+	 * <code>end</code> (exclusive)
+	 */
+	public void decode(CharSequence s, int start, int end, StringBuilder out) {
+		Preconditions.checkPositionIndexes(start, end, s.length());
+		int first = firstToDecode(s, start, end);
+		out.append(s, start, first);
+		if (first < end) {
+			appendDecoded(s, first, end, out);
+		}
+	}
+
+	/**
+	 * Puts the decoded chars between <code>start</code> (inclusive) and
+	 * <code>end</code> (exclusive)
+	 * 
+	 * @throws java.nio.BufferOverflowException
+	 *             if they do not fit
+	 */
+	public void decode(CharSequence s, int start, int end, CharBuffer out) {
+		Preconditions.checkPositionIndexes(start, end, s.length());
+		int first = firstToDecode(s, start, end);
+		out.append(s, start, first);
+		if (first < end) {
+			appendDecoded(s, first, end, out);
+		}
+	}
+
+	/**
+	 * Decodes a range of a URL source, which may be a {@link ByteSequence},
+	 * whose multi-byte UTF-8 chars are decoded as well
+	 */
+	String decode(CharSequence source, int start, int end) {
+		if (!needsDecoding(source, start, end)) {
+			if (source instanceof ByteSequence) {
+				return ((ByteSequence) source).substring(start, end);
+			}
+			return source.subSequence(start, end).toString();
+		}
+		StringBuilder sb = new StringBuilder(end - start);
+		appendDecoded(source, start, end, sb);
+		return sb.toString();
+	}
+
+	/**
+	 * @return <code>true</code> iff the range of a URL source is not its own
+	 *         decoded form
+	 */
+	boolean needsDecoding(CharSequence source, int start, int end) {
+		if (firstToDecode(source, start, end) < end) {
+			return true;
+		}
+		if (source instanceof ByteSequence) {
+			for (int i = start; i < end; i++) {
+				if (source.charAt(i) > 0x7f) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private int firstToEncode(CharSequence s, int start, int end) {
+		boolean[] table = safe;
+		for (int i = start; i < end; i++) {
+			char c = s.charAt(i);
+			if (c >= 128 || !table[c]) {
+				return i;
+			}
+		}
+		return end;
+	}
+
+	private int firstToDecode(CharSequence s, int start, int end) {
+		for (int i = start; i < end; i++) {
+			char c = s.charAt(i);
+			if (c == '%' || (form && c == '+')) {
+				return i;
+			}
+		}
+		return end;
+	}
+
+	private void appendEncoded(CharSequence s, int start, int end, Appendable out) {
+		try {
+			for (int i = start; i < end; i++) {
+				char c = s.charAt(i);
+				if (c < 128) {
+					if (safe[c]) {
+						out.append(c);
+					} else if (form && c == ' ') {
+						out.append('+');
+					} else {
+						appendEscape(c, out);
+					}
+				} else if (c < 0x800) {
+					appendEscape(0xc0 | c >> 6, out);
+					appendEscape(0x80 | (c & 0x3f), out);
+				} else if (c < Character.MIN_SURROGATE || c > Character.MAX_SURROGATE) {
+					appendEscape(0xe0 | c >> 12, out);
+					appendEscape(0x80 | (c >> 6 & 0x3f), out);
+					appendEscape(0x80 | (c & 0x3f), out);
+				} else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(s.charAt(i + 1))) {
+					int codePoint = Character.toCodePoint(c, s.charAt(++i));
+					appendEscape(0xf0 | codePoint >> 18, out);
+					appendEscape(0x80 | (codePoint >> 12 & 0x3f), out);
+					appendEscape(0x80 | (codePoint >> 6 & 0x3f), out);
+					appendEscape(0x80 | (codePoint & 0x3f), out);
+				} else {
+					// An unpaired surrogate, encoded as U+FFFD like
+					// String.getBytes() does
+					appendEscape(0xef, out);
+					appendEscape(0xbf, out);
+					appendEscape(0xbd, out);
+				}
+			}
+		} catch (IOException e) {
+			throw Throwables.propagate(e);
+		}
+	}
+
+	private static void appendEscape(int b, Appendable out) throws IOException {
+		out.append('%').append(HEX_DIGITS[b >> 4 & 0xf]).append(HEX_DIGITS[b & 0xf]);
+	}
+
+	/**
+	 * Decodes escapes, and the raw bytes of a {@link ByteSequence}, as UTF-8
+	 */
+	private void appendDecoded(CharSequence s, int start, int end, Appendable out) {
+		boolean bytes = s instanceof ByteSequence;
+		byte[] pending = null;
+		int count = 0;
+		try {
+			for (int i = start; i < end; i++) {
+				char c = s.charAt(i);
+				int b = -1;
+				if (c == '%' && i + 2 < end) {
+					int hi = hexDigit(s.charAt(i + 1));
+					int lo = hexDigit(s.charAt(i + 2));
+					if (hi != -1 && lo != -1) {
+						b = hi << 4 | lo;
+						i += 2;
+					}
+				} else if (bytes && c > 0x7f) {
+					b = c;
+				}
+				if (b != -1) {
+					if (pending == null) {
+						pending = new byte[Math.min(end - i + 3, 64)];
+					} else if (count == pending.length) {
+						pending = Arrays.copyOf(pending, count * 2);
+					}
+					pending[count++] = (byte) b;
+					continue;
+				}
+				if (count > 0) {
+					out.append(new String(pending, 0, count, Charsets.UTF_8));
+					count = 0;
+				}
+				out.append(form && c == '+' ? ' ' : c);
+			}
+			if (count > 0) {
+				out.append(new String(pending, 0, count, Charsets.UTF_8));
+			}
+		} catch (IOException e) {
+			throw Throwables.propagate(e);
+		}
+	}
+
+	/**
+	 * @return the value of an ASCII hex digit; -1 for anything else,
+	 *         including the non-ASCII digits {@link Character#digit(char, int)}
+	 *         accepts
+	 */
+	static int hexDigit(char c) {
+		if (c >= '0' && c <= '9') {
+			return c - '0';
+		}
+		if (c >= 'a' && c <= 'f') {
+			return c - 'a' + 10;
+		}
+		if (c >= 'A' && c <= 'F') {
+			return c - 'A' + 10;
+		}
+		return -1;
+	}
+}
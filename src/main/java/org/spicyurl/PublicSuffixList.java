@@ -0,0 +1,407 @@
+/*******************************************************************************
+ * Copyright 2012 Yonatan Graber
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.spicyurl;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+
+/**
+ * Public suffixes and registrable domains (eTLD+1) of hosts, by the rules of
+ * the Public Suffix List (https://publicsuffix.org/list/), loaded from a
+ * local copy of its <code>public_suffix_list.dat</code>.
+ * <p>
+ * The rules are kept in a trie of reversed host labels, flattened into a
+ * few arrays: the children of each node are a contiguous, sorted range of
+ * nodes, and all the labels are in a single char array. A lookup walks the
+ * host right to left over its char range, binary searching each label
+ * among the children of the previous one, and returns offsets; nothing is
+ * split or allocated. Labels are matched ignoring ASCII case, and
+ * internationalized rules match both their Unicode and their ASCII
+ * (punycode) forms.
+ * <p>
+ * Immutable and thread safe.
+ */
+public final class PublicSuffixList {
+
+	private static final String PRIVATE_DOMAINS = "===BEGIN PRIVATE DOMAINS===";
+	private static final IpC14n IP_C14N = new IpC14n();
+
+	/*
+	 * Node flags
+	 */
+	private static final byte RULE = 1;
+	private static final byte WILDCARD = 2;
+	private static final byte EXCEPTION = 4;
+
+	/**
+	 * The children of node <code>i</code> are the nodes
+	 * <code>childStart[i]</code> to <code>childStart[i + 1]</code>
+	 * (exclusive), sorted by label length, then by label, so most probes of
+	 * a binary search are settled by the length alone. The root is node 0.
+	 */
+	private final int[] childStart;
+
+	/**
+	 * The label of node <code>i</code> is <code>labels[labelStart[i]]</code>
+	 * to <code>labels[labelStart[i + 1]]</code> (exclusive)
+	 */
+	private final int[] labelStart;
+	private final char[] labels;
+	private final byte[] flags;
+	private final int rules;
+
+	private PublicSuffixList(TrieNode root, int rules) {
+		// Breadth first, so the children of every node are numbered in a row
+		int nodes = root.count();
+		int chars = root.chars();
+		childStart = new int[nodes + 1];
+		labelStart = new int[nodes + 1];
+		labels = new char[chars];
+		flags = new byte[nodes];
+		Queue<TrieNode> queue = new ArrayDeque<TrieNode>();
+		queue.add(root);
+		int next = 1;
+		int labelEnd = 0;
+		for (int i = 0; i < nodes; i++) {
+			TrieNode node = queue.remove();
+			flags[i] = node.flags;
+			labelStart[i] = labelEnd;
+			node.label.getChars(0, node.label.length(), labels, labelEnd);
+			labelEnd += node.label.length();
+			childStart[i] = next;
+			next += node.children.size();
+			queue.addAll(node.children.values());
+		}
+		childStart[nodes] = next;
+		labelStart[nodes] = labelEnd;
+		this.rules = rules;
+	}
+
+	/**
+	 * Loads all the rules, both ICANN and private domains, of a
+	 * <code>public_suffix_list.dat</code> file
+	 */
+	public static PublicSuffixList load(File file) throws IOException {
+		Reader reader = Files.newReader(file, Charsets.UTF_8);
+		try {
+			return load(reader, true);
+		} finally {
+			Closeables.closeQuietly(reader);
+		}
+	}
+
+	/**
+	 * Loads the rules of the Public Suffix List format: a rule per line,
+	 * <code>//</code> comments, <code>*</code> wildcard and <code>!</code>
+	 * exception rules. The reader is not closed.
+	 * 
+	 * @param privateDomains
+	 *            - whether to load the private domains section as well
+	 */
+	public static PublicSuffixList load(Reader reader, boolean privateDomains) throws IOException {
+		BufferedReader lines = new BufferedReader(reader);
+		TrieNode root = new TrieNode("");
+		int rules = 0;
+		String line;
+		while ((line = lines.readLine()) != null) {
+			line = line.trim();
+			if (line.startsWith("//")) {
+				if (!privateDomains && line.contains(PRIVATE_DOMAINS)) {
+					break;
+				}
+				continue;
+			}
+			int space = line.indexOf(' ');
+			String rule = space == -1 ? line : line.substring(0, space);
+			if (rule.isEmpty()) {
+				continue;
+			}
+			if (add(root, rule)) {
+				rules++;
+			}
+			String ascii = toAscii(rule);
+			if (!ascii.equals(rule)) {
+				add(root, ascii);
+			}
+		}
+		return new PublicSuffixList(root, rules);
+	}
+
+	/**
+	 * @return the number of rules
+	 */
+	public int size() {
+		return rules;
+	}
+
+	/**
+	 * @return the offset of the public suffix of the host between
+	 *         <code>start</code> (inclusive) and <code>end</code>
+	 *         (exclusive), ignoring a trailing dot; -1 if the host is not a
+	 *         domain name, e.g. it is an IP, starts with a dot or has an empty
+	 *         label within its public suffix
+	 */
+	public int publicSuffixStart(CharSequence host, int start, int end) {
+		Preconditions.checkPositionIndexes(start, end, host.length());
+		if (end > start && host.charAt(end - 1) == '.') {
+			end--;
+		}
+		if (start == end || host.charAt(start) == '[' || host.charAt(start) == '.' || isIpV4(host, start, end)) {
+			return -1;
+		}
+		// Without a matching rule, the last label is the public suffix
+		int suffix = -1;
+		int node = 0;
+		int labelEnd = end;
+		while (true) {
+			int labelStart = labelEnd;
+			while (labelStart > start && host.charAt(labelStart - 1) != '.') {
+				labelStart--;
+			}
+			if (labelStart == labelEnd) {
+				return -1;
+			}
+			if (suffix == -1) {
+				suffix = labelStart;
+			}
+			int child = findChild(node, host, labelStart, labelEnd);
+			if (child != -1 && (flags[child] & EXCEPTION) != 0) {
+				// An exception rule wins, and makes this label registrable
+				return labelEnd + 1;
+			}
+			if ((flags[node] & WILDCARD) != 0 || (child != -1 && (flags[child] & RULE) != 0)) {
+				suffix = labelStart;
+			}
+			if (child == -1 || labelStart == start) {
+				return suffix;
+			}
+			node = child;
+			labelEnd = labelStart - 1;
+		}
+	}
+
+	/**
+	 * @return the offset of the registrable domain (the public suffix and
+	 *         the label before it) of the host between <code>start</code>
+	 *         (inclusive) and <code>end</code> (exclusive); -1 if the host is
+	 *         a public suffix itself, or not a domain name
+	 */
+	public int registrableDomainStart(CharSequence host, int start, int end) {
+		int suffix = publicSuffixStart(host, start, end);
+		if (suffix <= start) {
+			return -1;
+		}
+		int domain = suffix - 1;
+		while (domain > start && host.charAt(domain - 1) != '.') {
+			domain--;
+		}
+		return domain == suffix - 1 ? -1 : domain;
+	}
+
+	/**
+	 * @return the public suffix of the host, e.g. <code>co.uk</code> for
+	 *         <code>www.abc.co.uk</code>; <code>null</code> if the host is
+	 *         not a domain name
+	 */
+	public String getPublicSuffix(String host) {
+		int suffix = publicSuffixStart(host, 0, host.length());
+		return suffix == -1 ? null : host.substring(suffix, withoutTrailingDot(host, 0, host.length()));
+	}
+
+	/**
+	 * @return the registrable domain of the host, e.g. <code>abc.co.uk</code>
+	 *         for <code>www.abc.co.uk</code>; <code>null</code> if the host is
+	 *         a public suffix itself, or not a domain name
+	 */
+	public String getRegistrableDomain(String host) {
+		int domain = registrableDomainStart(host, 0, host.length());
+		return domain == -1 ? null : host.substring(domain, withoutTrailingDot(host, 0, host.length()));
+	}
+
+	/**
+	 * @return the registrable domain of the URL's host, cut straight from the
+	 *         URL; <code>null</code> if it has none
+	 */
+	public String getRegistrableDomain(Url url) {
+		int start = url.start(UrlParser.HOST);
+		if (start == -1) {
+			return null;
+		}
+		CharSequence source = url.getSource();
+		int end = url.end(UrlParser.HOST);
+		if (!(source instanceof String) && !isAscii(source, start, end)) {
+			// The labels are UTF-8 bytes, which don't match the rules' chars
+			return getRegistrableDomain(url.getHost());
+		}
+		int domain = registrableDomainStart(source, start, end);
+		return domain == -1 ? null : UrlParser.substring(source, domain, withoutTrailingDot(source, start, end));
+	}
+
+	private static int withoutTrailingDot(CharSequence host, int start, int end) {
+		return end > start && host.charAt(end - 1) == '.' ? end - 1 : end;
+	}
+
+	private static boolean isAscii(CharSequence s, int start, int end) {
+		for (int i = start; i < end; i++) {
+			if (s.charAt(i) > 0x7f) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isIpV4(CharSequence host, int start, int end) {
+		char last = host.charAt(end - 1);
+		return last >= '0' && last <= '9' && IP_C14N.tryParseIpV4(host, start, end) >= 0;
+	}
+
+	/**
+	 * @return the child of <code>node</code> labeled as the host label
+	 *         between <code>start</code> and <code>end</code>, or -1
+	 */
+	private int findChild(int node, CharSequence host, int start, int end) {
+		int low = childStart[node];
+		int high = childStart[node + 1] - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int cmp = compareLabel(mid, host, start, end);
+			if (cmp < 0) {
+				low = mid + 1;
+			} else if (cmp > 0) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	private int compareLabel(int node, CharSequence host, int start, int end) {
+		int from = labelStart[node];
+		int length = labelStart[node + 1] - from;
+		int hostLength = end - start;
+		if (length != hostLength) {
+			return length - hostLength;
+		}
+		for (int i = 0; i < length; i++) {
+			char c = host.charAt(start + i);
+			if (c >= 'A' && c <= 'Z') {
+				c += 'a' - 'A';
+			}
+			int diff = labels[from + i] - c;
+			if (diff != 0) {
+				return diff;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * @return <code>true</code> iff the rule is a valid one
+	 */
+	private static boolean add(TrieNode root, String rule) {
+		byte flag = RULE;
+		if (rule.startsWith("!")) {
+			flag = EXCEPTION;
+			rule = rule.substring(1);
+		}
+		String[] ruleLabels = rule.toLowerCase(Locale.ENGLISH).split("\\.");
+		TrieNode node = root;
+		for (int i = ruleLabels.length - 1; i >= 0; i--) {
+			String label = ruleLabels[i];
+			if (label.equals("*")) {
+				// Only a leftmost wildcard is supported, as in the list
+				if (i != 0 || flag == EXCEPTION) {
+					return false;
+				}
+				node.flags |= WILDCARD;
+				return true;
+			}
+			if (label.isEmpty()) {
+				return false;
+			}
+			node = node.child(label);
+		}
+		node.flags |= flag;
+		return true;
+	}
+
+	private static String toAscii(String rule) {
+		try {
+			return Idn.toAscii(rule);
+		} catch (IllegalArgumentException e) {
+			return rule;
+		}
+	}
+
+	private static final Comparator<String> BY_LENGTH = new Comparator<String>() {
+		@Override
+		public int compare(String a, String b) {
+			return a.length() != b.length() ? a.length() - b.length() : a.compareTo(b);
+		}
+	};
+
+	/**
+	 * A node of the trie while it is being built
+	 */
+	private static final class TrieNode {
+		private final String label;
+		private final Map<String, TrieNode> children = new TreeMap<String, TrieNode>(BY_LENGTH);
+		private byte flags;
+
+		TrieNode(String label) {
+			this.label = label;
+		}
+
+		TrieNode child(String label) {
+			TrieNode child = children.get(label);
+			if (child == null) {
+				child = new TrieNode(label);
+				children.put(label, child);
+			}
+			return child;
+		}
+
+		int count() {
+			int count = 1;
+			for (TrieNode child : children.values()) {
+				count += child.count();
+			}
+			return count;
+		}
+
+		int chars() {
+			int chars = label.length();
+			for (TrieNode child : children.values()) {
+				chars += child.chars();
+			}
+			return chars;
+		}
+	}
+}
@@ -0,0 +1,253 @@
+/*******************************************************************************
+ * Copyright 2012 Yonatan Graber
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.spicyurl;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Punycode (RFC 3492), the encoding of Unicode labels of internationalized
+ * domain names into ASCII. Labels are encoded and decoded as they are,
+ * without the <code>xn--</code> prefix and without any mapping; see
+ * {@link Idn} for converting whole hosts.
+ * <p>
+ * The codec works on char ranges and appends to a caller's
+ * {@link StringBuilder}, so converting a label allocates nothing but the
+ * decoder's code point buffer. Thread safe.
+ */
+public final class Punycode {
+
+	private static final int BASE = 36;
+	private static final int TMIN = 1;
+	private static final int TMAX = 26;
+	private static final int SKEW = 38;
+	private static final int DAMP = 700;
+	private static final int INITIAL_BIAS = 72;
+	private static final int INITIAL_N = 0x80;
+	private static final char DELIMITER = '-';
+
+	private Punycode() {
+	}
+
+	/**
+	 * @return the punycode of the label
+	 * @throws IllegalArgumentException
+	 *             if the label is too long to encode
+	 */
+	public static String encode(String label) {
+		StringBuilder sb = new StringBuilder(label.length() + 8);
+		Preconditions.checkArgument(encode(label, 0, label.length(), sb), "Label is too long to encode: %s", label);
+		return sb.toString();
+	}
+
+	/**
+	 * @return the Unicode label the punycode stands for
+	 * @throws IllegalArgumentException
+	 *             if the punycode is malformed
+	 */
+	public static String decode(String punycode) {
+		StringBuilder sb = new StringBuilder(punycode.length());
+		Preconditions.checkArgument(decode(punycode, 0, punycode.length(), sb), "Malformed punycode: %s", punycode);
+		return sb.toString();
+	}
+
+	/**
+	 * Appends the punycode of the label between <code>start</code>
+	 * (inclusive) and <code>end</code> (exclusive).
+	 * 
+	 * @return <code>false</code> if the label is too long to encode, in which
+	 *         case nothing is appended
+	 */
+	public static boolean encode(CharSequence label, int start, int end, StringBuilder out) {
+		Preconditions.checkPositionIndexes(start, end, label.length());
+		int mark = out.length();
+		int length = 0;
+		int basic = 0;
+		for (int i = start; i < end; i += Character.charCount(codePointAt(label, i, end))) {
+			char c = label.charAt(i);
+			if (c < INITIAL_N) {
+				out.append(c);
+				basic++;
+			}
+			length++;
+		}
+		if (basic > 0) {
+			out.append(DELIMITER);
+		}
+		int n = INITIAL_N;
+		int delta = 0;
+		int bias = INITIAL_BIAS;
+		for (int handled = basic; handled < length; delta++, n++) {
+			// The smallest code point yet to be handled
+			int m = Integer.MAX_VALUE;
+			for (int i = start; i < end;) {
+				int c = codePointAt(label, i, end);
+				if (c >= n && c < m) {
+					m = c;
+				}
+				i += Character.charCount(c);
+			}
+			if (m - n > (Integer.MAX_VALUE - delta) / (handled + 1)) {
+				out.setLength(mark);
+				return false;
+			}
+			delta += (m - n) * (handled + 1);
+			n = m;
+			for (int i = start; i < end;) {
+				int c = codePointAt(label, i, end);
+				i += Character.charCount(c);
+				if (c < n && ++delta < 0) {
+					out.setLength(mark);
+					return false;
+				}
+				if (c == n) {
+					int q = delta;
+					for (int k = BASE;; k += BASE) {
+						int t = threshold(k, bias);
+						if (q < t) {
+							break;
+						}
+						out.append(digit(t + (q - t) % (BASE - t)));
+						q = (q - t) / (BASE - t);
+					}
+					out.append(digit(q));
+					bias = adapt(delta, handled + 1, handled == basic);
+					delta = 0;
+					handled++;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Appends the Unicode label the punycode between <code>start</code>
+	 * (inclusive) and <code>end</code> (exclusive) stands for.
+	 * 
+	 * @return <code>false</code> if the punycode is malformed, in which case
+	 *         nothing is appended
+	 */
+	public static boolean decode(CharSequence punycode, int start, int end, StringBuilder out) {
+		Preconditions.checkPositionIndexes(start, end, punycode.length());
+		int delimiter = end - 1;
+		while (delimiter >= start && punycode.charAt(delimiter) != DELIMITER) {
+			delimiter--;
+		}
+		// Every code point takes at least one char of the punycode
+		int[] output = new int[end - start];
+		int length = 0;
+		for (int i = start; i < delimiter; i++) {
+			char c = punycode.charAt(i);
+			if (c >= INITIAL_N) {
+				return false;
+			}
+			output[length++] = c;
+		}
+		int n = INITIAL_N;
+		int bias = INITIAL_BIAS;
+		int i = 0;
+		for (int in = delimiter < start ? start : delimiter + 1; in < end;) {
+			int previous = i;
+			int w = 1;
+			for (int k = BASE;; k += BASE) {
+				if (in == end) {
+					return false;
+				}
+				int digit = digitValue(punycode.charAt(in++));
+				if (digit == -1 || digit > (Integer.MAX_VALUE - i) / w) {
+					return false;
+				}
+				i += digit * w;
+				int t = threshold(k, bias);
+				if (digit < t) {
+					break;
+				}
+				if (w > Integer.MAX_VALUE / (BASE - t)) {
+					return false;
+				}
+				w *= BASE - t;
+			}
+			bias = adapt(i - previous, length + 1, previous == 0);
+			if (i / (length + 1) > Integer.MAX_VALUE - n) {
+				return false;
+			}
+			n += i / (length + 1);
+			i %= length + 1;
+			// Basic code points are never encoded, and surrogates are not
+			// code points on their own
+			if (n < INITIAL_N || n > Character.MAX_CODE_POINT
+					|| (n >= Character.MIN_SURROGATE && n <= Character.MAX_SURROGATE)) {
+				return false;
+			}
+			System.arraycopy(output, i, output, i + 1, length - i);
+			output[i++] = n;
+			length++;
+		}
+		for (int j = 0; j < length; j++) {
+			out.appendCodePoint(output[j]);
+		}
+		return true;
+	}
+
+	private static int threshold(int k, int bias) {
+		if (k <= bias) {
+			return TMIN;
+		}
+		return k >= bias + TMAX ? TMAX : k - bias;
+	}
+
+	private static int adapt(int delta, int points, boolean first) {
+		delta = first ? delta / DAMP : delta / 2;
+		delta += delta / points;
+		int k = 0;
+		while (delta > ((BASE - TMIN) * TMAX) / 2) {
+			delta /= BASE - TMIN;
+			k += BASE;
+		}
+		return k + (BASE - TMIN + 1) * delta / (delta + SKEW);
+	}
+
+	private static char digit(int d) {
+		return (char) (d < 26 ? 'a' + d : '0' + d - 26);
+	}
+
+	private static int digitValue(char c) {
+		if (c >= 'a' && c <= 'z') {
+			return c - 'a';
+		}
+		if (c >= 'A' && c <= 'Z') {
+			return c - 'A';
+		}
+		if (c >= '0' && c <= '9') {
+			return c - '0' + 26;
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the code point at <code>index</code>, not looking past
+	 *         <code>end</code> for the low surrogate of a pair
+	 */
+	private static int codePointAt(CharSequence s, int index, int end) {
+		char c = s.charAt(index);
+		if (Character.isHighSurrogate(c) && index + 1 < end) {
+			char low = s.charAt(index + 1);
+			if (Character.isLowSurrogate(low)) {
+				return Character.toCodePoint(c, low);
+			}
+		}
+		return c;
+	}
+}
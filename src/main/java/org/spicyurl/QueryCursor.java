@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright 2012 Yonatan Graber
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.spicyurl;
+
+/**
+ * A flyweight cursor over the parameters of a URL query, in order. Each
+ * {@link #next()} only finds the bounds of the next <code>key=value</code>
+ * pair; nothing is cut or decoded until asked for, so looking up a few
+ * parameters of a long query costs one scan and no allocation per skipped
+ * parameter.
+ * <p>
+ * Keys and values are decoded as form data, with
+ * {@link PercentCodec#QUERY_PARAMETER}: <code>+</code> is a space, and
+ * percent-escapes are UTF-8 bytes. Empty pairs (<code>a=1&&b=2</code>) are
+ * skipped; a key without a '=' has an empty value. Not thread safe, but
+ * cheap to create, one per reading thread.
+ */
+public final class QueryCursor {
+
+	private static final char PARAM_SEP_CHAR = '&';
+	private static final char VALUE_SEP_CHAR = '=';
+
+	private final CharSequence source;
+	private final int end;
+	private int keyStart;
+	private int keyEnd;
+	private int valueEnd;
+
+	/**
+	 * @param source
+	 *            - the URL source, a String or a {@link ByteSequence}
+	 * @param start
+	 *            - start of the query, or -1 if there is none
+	 */
+	QueryCursor(CharSequence source, int start, int end) {
+		this.source = source;
+		this.end = start == -1 ? -1 : end;
+		// Positioned before the first parameter
+		this.valueEnd = start == -1 ? -1 : start - 1;
+	}
+
+	/**
+	 * Moves to the next parameter.
+	 * 
+	 * @return <code>false</code> if there are no more parameters
+	 */
+	public boolean next() {
+		int i = valueEnd + 1;
+		while (i < end && source.charAt(i) == PARAM_SEP_CHAR) {
+			i++;
+		}
+		if (i >= end) {
+			valueEnd = end;
+			keyStart = keyEnd = end;
+			return false;
+		}
+		keyStart = i;
+		keyEnd = -1;
+		while (i < end && source.charAt(i) != PARAM_SEP_CHAR) {
+			if (keyEnd == -1 && source.charAt(i) == VALUE_SEP_CHAR) {
+				keyEnd = i;
+			}
+			i++;
+		}
+		valueEnd = i;
+		if (keyEnd == -1) {
+			keyEnd = i;
+		}
+		return true;
+	}
+
+	/**
+	 * @return the decoded key of the current parameter
+	 */
+	public String getKey() {
+		return PercentCodec.QUERY_PARAMETER.decode(source, keyStart, keyEnd);
+	}
+
+	/**
+	 * @return the decoded value of the current parameter; empty if it has no
+	 *         '='
+	 */
+	public String getValue() {
+		return PercentCodec.QUERY_PARAMETER.decode(source, valueStart(), valueEnd);
+	}
+
+	/**
+	 * @return the key of the current parameter, as it is in the URL
+	 */
+	public String getRawKey() {
+		return cut(source, keyStart, keyEnd);
+	}
+
+	/**
+	 * @return the value of the current parameter, as it is in the URL
+	 */
+	public String getRawValue() {
+		return cut(source, valueStart(), valueEnd);
+	}
+
+	/**
+	 * @return <code>true</code> iff the current parameter has a '='
+	 */
+	public boolean hasValue() {
+		return keyEnd < valueEnd;
+	}
+
+	/**
+	 * @return <code>true</code> iff the decoded key of the current parameter
+	 *         is <code>name</code>. A key without escapes is compared in
+	 *         place, without decoding it.
+	 */
+	public boolean keyEquals(String name) {
+		if (PercentCodec.QUERY_PARAMETER.needsDecoding(source, keyStart, keyEnd)) {
+			return getKey().equals(name);
+		}
+		if (keyEnd - keyStart != name.length()) {
+			return false;
+		}
+		for (int i = keyStart; i < keyEnd; i++) {
+			if (source.charAt(i) != name.charAt(i - keyStart)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private int valueStart() {
+		return keyEnd < valueEnd ? keyEnd + 1 : valueEnd;
+	}
+
+	private static String cut(CharSequence source, int start, int end) {
+		if (source instanceof ByteSequence) {
+			return ((ByteSequence) source).substring(start, end);
+		}
+		return source.subSequence(start, end).toString();
+	}
+}
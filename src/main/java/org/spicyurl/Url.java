@@ -19,25 +19,96 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
-import java.util.Collections;
-import java.util.HashSet;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
 
-import lombok.AccessLevel;
-import lombok.Getter;
-
 import org.apache.commons.lang3.StringUtils;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
 
-@Getter
+/**
+ * A parsed URL. Urls are immutable, and safe to share between threads; the
+ * raw string and the components are only cut on first access, and a race
+ * on that at most cuts them twice.
+ */
 public class Url {
 
+	private static final IpC14n IP_C14N = new IpC14n();
+	private static final UrlNormalizer NORMALIZER = new UrlNormalizer();
+
+	/**
+	 * The delimiter before each component that has one, by component
+	 */
+	private static final String[] DELIMITERS = { null, null, ":", null, ":", "/", "?", "#" };
+
 	public Url(String url) {
+		this((CharSequence) url);
+	}
+
+	/**
+	 * Parses a URL, sharing its scheme and host strings with other Urls
+	 * through the given pool.
+	 */
+	public Url(String url, UrlInternPool pool) {
+		this(url);
+		Preconditions.checkNotNull(pool);
+		intern(pool, UrlParser.SCHEME);
+		intern(pool, UrlParser.HOST);
+	}
+
+	/**
+	 * Parses a URL from its UTF-8 (or ASCII) bytes, without decoding them
+	 * first. Components are decoded only when they are read.
+	 * <p>
+	 * The bytes are not copied, and must not change while this Url is in use.
+	 */
+	public Url(byte[] url, int offset, int length) {
+		this(byteSequence(url, offset, length));
+	}
+
+	/**
+	 * Parses a URL from the remaining UTF-8 (or ASCII) bytes of a heap or
+	 * direct buffer, without decoding them first. Components are decoded only
+	 * when they are read. The buffer's position and limit are not changed.
+	 * <p>
+	 * The bytes are not copied, and must not change while this Url is in use.
+	 */
+	public Url(ByteBuffer url) {
+		this(new ByteSequence(Preconditions.checkNotNull(url).duplicate(), url.position(), url.remaining()));
+	}
+
+	private Url(CharSequence url) {
 		Preconditions.checkArgument(StringUtils.isNotBlank(url));
-		raw = url;
-		UrlParser p = new UrlParser(this);
-		p.parse();
+		source = url;
+		if (url instanceof String) {
+			raw = (String) url;
+		}
+		bounds = new int[UrlParser.BOUNDS_LENGTH];
+		errors = UrlParser.parse(source, bounds);
+	}
+
+	private static ByteSequence byteSequence(byte[] url, int offset, int length) {
+		Preconditions.checkPositionIndexes(offset, offset + length, Preconditions.checkNotNull(url).length);
+		return new ByteSequence(ByteBuffer.wrap(url), offset, length);
+	}
+
+	/**
+	 * Builds a Url from an already parsed bounds table. The source must not
+	 * change for as long as the Url is in use.
+	 */
+	Url(CharSequence source, int[] bounds, int errors) {
+		Preconditions.checkArgument(StringUtils.isNotBlank(source));
+		this.source = source;
+		if (source instanceof String) {
+			this.raw = (String) source;
+		}
+		this.bounds = bounds;
+		this.errors = errors;
 	}
 
 	public Url(URL url) {
@@ -56,68 +127,647 @@ public class Url {
 		return new URL(getRaw());
 	}
 
+	/**
+	 * The URL as given, either the raw string itself or a view over its bytes
+	 */
+	private final CharSequence source;
+
+	/**
+	 * The raw URL, decoded from {@link #source} on first access if needed
+	 */
 	private String raw;
-	private String host;
-	private String scheme;
-	private String path;
-	private int port = -1;
-	private String username;
-	private String password;
-	private String query;
-	private String fragment;
 
-	@Getter(AccessLevel.PROTECTED)
-	private Set<UrlErrors> validationErrorsModifiable = new HashSet<UrlErrors>();
+	/**
+	 * Component boundaries within {@link #raw}, as recorded by
+	 * {@link UrlParser}
+	 */
+	private final int[] bounds;
+
+	/**
+	 * Components already cut from {@link #raw}, allocated on first access
+	 */
+	private String[] components;
+
+	/**
+	 * The decoded query parameters, built on first access
+	 */
+	private ListMultimap<String, String> parameters;
 
-	private Set<UrlErrors> valiationErrors = Collections.unmodifiableSet(validationErrorsModifiable);
+	/**
+	 * Validation errors, as a bitmask of {@link UrlErrors#mask()}
+	 */
+	private final int errors;
 
 	public boolean isValid() {
-		return validationErrorsModifiable.isEmpty();
+		return errors == 0;
 	}
 
-	protected void setHost(String host) {
-		if (StringUtils.isEmpty(host)) {
-			validationErrorsModifiable.add(UrlErrors.HOST_IS_MISSING);
-			return;
+	/**
+	 * @return the validation errors, as a bitmask with
+	 *         {@link UrlErrors#mask()} set for each error; <code>0</code> if
+	 *         the URL is valid
+	 */
+	public int getErrorMask() {
+		return errors;
+	}
+
+	public Set<UrlErrors> getValiationErrors() {
+		return UrlErrors.fromMask(errors);
+	}
+
+	public String getRaw() {
+		String value = raw;
+		if (value == null) {
+			value = source.toString();
+			raw = value;
 		}
-		this.host = host;
+		return value;
+	}
+
+	/**
+	 * Validates a URL without constructing a {@link Url}. Nothing is
+	 * allocated, and no exception is thrown for malformed input.
+	 * 
+	 * @return <code>true</code> iff <code>new Url(url).isValid()</code>
+	 *         would be <code>true</code>. Blank input is never valid.
+	 */
+	public static boolean isValid(CharSequence url) {
+		return validate(url) == 0;
+	}
+
+	/**
+	 * Validates a URL without constructing a {@link Url}. Nothing is
+	 * allocated, and no exception is thrown for malformed input.
+	 * 
+	 * @return the errors <code>new Url(url).getErrorMask()</code> would
+	 *         hold; <code>0</code> if the URL is valid
+	 */
+	public static int validate(CharSequence url) {
+		return UrlParser.parse(Preconditions.checkNotNull(url), null);
+	}
+
+	public String getHost() {
+		return component(UrlParser.HOST);
 	}
 
-	protected void setScheme(String scheme) {
-		if (StringUtils.isEmpty(scheme)) {
-			validationErrorsModifiable.add(UrlErrors.SCHEME_IS_MISSING);
+	/**
+	 * @return the host with its internationalized labels in their ASCII
+	 *         (punycode) form, see {@link Idn#toAscii(String)}; the very same
+	 *         string as {@link #getHost()} when it is already ASCII
+	 * @throws IllegalArgumentException
+	 *             if a converted label is longer than 63 chars
+	 */
+	public String getAsciiHost() {
+		String host = getHost();
+		return host == null ? null : Idn.toAscii(host);
+	}
+
+	/**
+	 * @return the host with its punycode labels decoded, see
+	 *         {@link Idn#toUnicode(String)}; the very same string as
+	 *         {@link #getHost()} when it has none
+	 */
+	public String getUnicodeHost() {
+		String host = getHost();
+		return host == null ? null : Idn.toUnicode(host);
+	}
+
+	public String getScheme() {
+		return component(UrlParser.SCHEME);
+	}
+
+	public String getPath() {
+		return component(UrlParser.PATH);
+	}
+
+	public int getPort() {
+		return bounds[UrlParser.PORT_VALUE];
+	}
+
+	public String getUsername() {
+		return component(UrlParser.USERNAME);
+	}
+
+	public String getPassword() {
+		return component(UrlParser.PASSWORD);
+	}
+
+	public String getQuery() {
+		return component(UrlParser.QUERY);
+	}
+
+	public String getFragment() {
+		return component(UrlParser.FRAGMENT);
+	}
+
+	/**
+	 * @return a stable 64-bit fingerprint of the canonical form of this URL;
+	 *         see {@link UrlNormalizer#fingerprint(Url)}
+	 */
+	public long fingerprint() {
+		return NORMALIZER.fingerprint(this);
+	}
+
+	/**
+	 * @return a new cursor over the path segments; it has none if there is
+	 *         no path. See {@link PathCursor#reset(Url)} for reusing one.
+	 */
+	public PathCursor getPathCursor() {
+		return new PathCursor().reset(this);
+	}
+
+	/**
+	 * Appends the path, without its leading '/' and with its dot segments
+	 * removed (RFC 3986 section 5.2.4), so a reused buffer resolves paths
+	 * without allocating. Appends nothing if there is no path.
+	 */
+	public void appendResolvedPath(StringBuilder out) {
+		int start = bounds[UrlParser.PATH * 2];
+		if (start == -1) {
 			return;
 		}
-		this.scheme = scheme;
+		int end = bounds[UrlParser.PATH * 2 + 1];
+		int base = out.length();
+		if (source instanceof ByteSequence) {
+			// The bytes are not the chars of the path
+			String path = getPath();
+			PathCursor.removeDotSegments("/" + path, 0, path.length() + 1, out);
+		} else {
+			// The leading '/' is right before the path
+			PathCursor.removeDotSegments(source, start - 1, end, out);
+		}
+		out.deleteCharAt(base);
+	}
+
+	/**
+	 * @return a new cursor over the query parameters; it has none if there
+	 *         is no query
+	 */
+	public QueryCursor getQueryCursor() {
+		return new QueryCursor(source, bounds[UrlParser.QUERY * 2], bounds[UrlParser.QUERY * 2 + 1]);
+	}
+
+	/**
+	 * Looks up a query parameter, decoding only its value.
+	 * 
+	 * @return the decoded value of the first query parameter named
+	 *         <code>name</code>, empty if it has no value;
+	 *         <code>null</code> if there is no such parameter
+	 */
+	public String getParameter(String name) {
+		Preconditions.checkNotNull(name);
+		QueryCursor cursor = getQueryCursor();
+		while (cursor.next()) {
+			if (cursor.keyEquals(name)) {
+				return cursor.getValue();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the decoded values of all the query parameters named
+	 *         <code>name</code>, in order
+	 */
+	public List<String> getParameters(String name) {
+		Preconditions.checkNotNull(name);
+		List<String> values = Lists.newArrayListWithCapacity(1);
+		QueryCursor cursor = getQueryCursor();
+		while (cursor.next()) {
+			if (cursor.keyEquals(name)) {
+				values.add(cursor.getValue());
+			}
+		}
+		return values;
 	}
 
-	protected void setPath(String path) {
-		this.path = path;
+	/**
+	 * @return all the decoded query parameters, in order. Built on first
+	 *         access.
+	 */
+	public ListMultimap<String, String> getParameterMap() {
+		ListMultimap<String, String> map = parameters;
+		if (map == null) {
+			ImmutableListMultimap.Builder<String, String> builder = ImmutableListMultimap.builder();
+			QueryCursor cursor = getQueryCursor();
+			while (cursor.next()) {
+				builder.put(cursor.getKey(), cursor.getValue());
+			}
+			map = builder.build();
+			parameters = map;
+		}
+		return map;
+	}
+
+	/**
+	 * Resolves a reference against this URL (RFC 3986 section 5.2), the way
+	 * a browser resolves a link on this page: <code>../a?b</code>,
+	 * <code>/a</code>, <code>?q</code>, <code>#top</code>,
+	 * <code>//host/a</code> or a whole URL. Dot segments are removed from the
+	 * resolved path.
+	 * <p>
+	 * When the reference has no scheme or authority of its own, which is the
+	 * common case, the resolved URL is written once into a single buffer,
+	 * reusing this URL's scheme, authority and bounds, and is not parsed
+	 * again. This URL must be valid, except maybe for its host.
+	 */
+	public Url resolve(CharSequence ref) {
+		Preconditions.checkNotNull(ref);
+		Preconditions.checkState((errors & ~UrlErrors.HOST_IS_INVALID.mask()) == 0, "Url is invalid: %s",
+				getValiationErrors());
+		if (!(source instanceof String)) {
+			return stringBacked().resolve(ref);
+		}
+		int[] refBounds = new int[UrlParser.REF_BOUNDS_LENGTH];
+		UrlParser.parseReference(ref, refBounds);
+		String raw = (String) source;
+		StringBuilder sb = new StringBuilder(raw.length() + ref.length());
+		int pathStart = refBounds[UrlParser.REF_PATH * 2];
+		int pathEnd = refBounds[UrlParser.REF_PATH * 2 + 1];
+
+		if (refBounds[UrlParser.REF_SCHEME * 2] != -1 || refBounds[UrlParser.REF_AUTHORITY * 2] != -1) {
+			// A URL of its own, maybe with this URL's scheme
+			if (refBounds[UrlParser.REF_SCHEME * 2] != -1) {
+				sb.append(ref, 0, refBounds[UrlParser.REF_SCHEME * 2 + 1]);
+			} else {
+				sb.append(raw, 0, bounds[UrlParser.SCHEME * 2 + 1]);
+			}
+			sb.append(':');
+			if (refBounds[UrlParser.REF_AUTHORITY * 2] != -1) {
+				sb.append("//").append(ref, refBounds[UrlParser.REF_AUTHORITY * 2],
+						refBounds[UrlParser.REF_AUTHORITY * 2 + 1]);
+			}
+			if (pathStart < pathEnd && ref.charAt(pathStart) == '/') {
+				PathCursor.removeDotSegments(ref, pathStart, pathEnd, sb);
+			} else {
+				sb.append(ref, pathStart, pathEnd);
+			}
+			appendReferenceComponent(ref, refBounds, UrlParser.REF_QUERY, '?', sb, null, -1);
+			appendReferenceComponent(ref, refBounds, UrlParser.REF_FRAGMENT, '#', sb, null, -1);
+			return new Url(sb.toString());
+		}
+
+		// This URL's scheme and authority, as they are
+		int authorityEnd = bounds[UrlParser.PORT * 2] != -1 ? bounds[UrlParser.PORT * 2 + 1]
+				: bounds[UrlParser.HOST * 2 + 1];
+		sb.append(raw, 0, authorityEnd);
+		int[] resolved = bounds.clone();
+		Arrays.fill(resolved, UrlParser.PATH * 2, UrlParser.COMPONENTS * 2, -1);
+		int basePathStart = bounds[UrlParser.PATH * 2];
+		int basePathEnd = bounds[UrlParser.PATH * 2 + 1];
+		if (pathStart == pathEnd) {
+			// No path keeps this URL's path, and its query unless there is
+			// another one
+			if (basePathStart != -1) {
+				sb.append(raw, basePathStart - 1, basePathEnd);
+				UrlParser.record(resolved, UrlParser.PATH, basePathStart, basePathEnd);
+			}
+			if (refBounds[UrlParser.REF_QUERY * 2] != -1) {
+				appendReferenceComponent(ref, refBounds, UrlParser.REF_QUERY, '?', sb, resolved, UrlParser.QUERY);
+			} else if (bounds[UrlParser.QUERY * 2] != -1) {
+				sb.append('?');
+				int queryStart = sb.length();
+				sb.append(raw, bounds[UrlParser.QUERY * 2], bounds[UrlParser.QUERY * 2 + 1]);
+				UrlParser.record(resolved, UrlParser.QUERY, queryStart, sb.length());
+			}
+		} else {
+			int slash = sb.length();
+			if (ref.charAt(pathStart) == '/') {
+				PathCursor.removeDotSegments(ref, pathStart, pathEnd, sb);
+			} else {
+				// Merge (RFC 3986 section 5.2.3): the reference replaces the
+				// last segment of this path
+				sb.append('/');
+				if (basePathStart != -1) {
+					int lastSlash = raw.lastIndexOf('/', basePathEnd - 1);
+					if (lastSlash >= basePathStart) {
+						sb.append(raw, basePathStart, lastSlash + 1);
+					}
+				}
+				sb.append(ref, pathStart, pathEnd);
+				if (PathCursor.hasDotSegments(sb, slash + 1, sb.length())) {
+					String merged = sb.substring(slash);
+					sb.setLength(slash);
+					PathCursor.removeDotSegments(merged, 0, merged.length(), sb);
+				}
+			}
+			UrlParser.record(resolved, UrlParser.PATH, slash + 1, sb.length());
+			appendReferenceComponent(ref, refBounds, UrlParser.REF_QUERY, '?', sb, resolved, UrlParser.QUERY);
+		}
+		appendReferenceComponent(ref, refBounds, UrlParser.REF_FRAGMENT, '#', sb, resolved, UrlParser.FRAGMENT);
+		return new Url(sb.toString(), resolved, errors);
 	}
 
-	protected void setPort(int port) {
-		if (port < UrlParser.MIN_PORT_VALUE || port > UrlParser.MAX_PORT_VALUE) {
-			validationErrorsModifiable.add(UrlErrors.INVALID_PORT_VALUE);
+	/**
+	 * Appends a query or fragment of a reference, if it has one, and records
+	 * its bounds
+	 */
+	private static void appendReferenceComponent(CharSequence ref, int[] refBounds, int refComponent,
+			char delimiter, StringBuilder sb, int[] resolved, int component) {
+		int start = refBounds[refComponent * 2];
+		if (start == -1) {
 			return;
 		}
+		sb.append(delimiter);
+		int resolvedStart = sb.length();
+		sb.append(ref, start, refBounds[refComponent * 2 + 1]);
+		if (resolved != null) {
+			UrlParser.record(resolved, component, resolvedStart, sb.length());
+		}
+	}
+
+	/**
+	 * @return a copy of this URL with another scheme
+	 */
+	public Url withScheme(String scheme) {
+		Preconditions.checkArgument(StringUtils.isNotEmpty(scheme), "Scheme must not be empty");
+		checkNoneOf(scheme, ":/", "Scheme");
+		return with(UrlParser.SCHEME, scheme, -1, 0);
+	}
+
+	/**
+	 * @return a copy of this URL with another username, or without a login
+	 *         (username and password) if <code>username</code> is
+	 *         <code>null</code>
+	 */
+	public Url withUsername(String username) {
+		checkNoneOf(username, ":@/?#", "Username");
+		return with(UrlParser.USERNAME, username, -1, 0);
+	}
+
+	/**
+	 * @return a copy of this URL with another password, or without one if
+	 *         <code>password</code> is <code>null</code>. The URL must have a
+	 *         username.
+	 */
+	public Url withPassword(String password) {
+		Preconditions.checkState(password == null || start(UrlParser.USERNAME) != -1,
+				"A password requires a username");
+		checkNoneOf(password, "@/?#", "Password");
+		return with(UrlParser.PASSWORD, password, -1, 0);
+	}
+
+	/**
+	 * @return a copy of this URL with another host. A host with a ':' must
+	 *         be a bracketed IPv6 literal. An invalid IPv6 literal makes the
+	 *         copy invalid, as parsing it would.
+	 */
+	public Url withHost(String host) {
+		Preconditions.checkArgument(StringUtils.isNotEmpty(host), "Host must not be empty");
+		checkNoneOf(host, "@/?#", "Host");
+		if (host.charAt(0) == '[') {
+			Preconditions.checkArgument(host.endsWith("]") && host.indexOf(']') == host.length() - 1
+					&& host.lastIndexOf('[') == 0, "Illegal IP literal host %s", host);
+		} else {
+			checkNoneOf(host, ":[]", "Host");
+		}
+		return with(UrlParser.HOST, host, -1, UrlValidator.validateHost(host, 0, host.length()));
+	}
+
+	/**
+	 * @return a copy of this URL with another port, or without one if
+	 *         <code>port</code> is -1
+	 */
+	public Url withPort(int port) {
+		Preconditions.checkArgument(port == -1
+				|| (port >= UrlParser.MIN_PORT_VALUE && port <= UrlParser.MAX_PORT_VALUE), "Illegal port %s", port);
+		return with(UrlParser.PORT, port == -1 ? null : String.valueOf(port), port, 0);
+	}
+
+	/**
+	 * @return a copy of this URL with another path (without its leading
+	 *         '/'), or without one if <code>path</code> is <code>null</code>
+	 */
+	public Url withPath(String path) {
+		checkNoneOf(path, "?#", "Path");
+		return with(UrlParser.PATH, path, -1, 0);
+	}
+
+	/**
+	 * @return a copy of this URL with another query, or without one if
+	 *         <code>query</code> is <code>null</code>
+	 */
+	public Url withQuery(String query) {
+		checkNoneOf(query, "#", "Query");
+		return with(UrlParser.QUERY, query, -1, 0);
+	}
+
+	/**
+	 * @return a copy of this URL with another fragment, or without one if
+	 *         <code>fragment</code> is <code>null</code>
+	 */
+	public Url withFragment(String fragment) {
+		return with(UrlParser.FRAGMENT, fragment, -1, 0);
+	}
+
+	private static void checkNoneOf(String value, String delimiters, String component) {
+		Preconditions.checkArgument(value == null || StringUtils.containsNone(value, delimiters),
+				"%s must not contain any of %s: %s", component, delimiters, value);
+	}
+
+	/**
+	 * Derives a URL with one component replaced, added or removed, with a
+	 * single copy and without parsing again: the bounds of the components
+	 * after it are shifted, and the components already cut are kept. The URL
+	 * must be valid, except maybe for its host.
+	 * 
+	 * @param value
+	 *            - the new component, already checked not to change the
+	 *            structure of the URL; <code>null</code> to remove it
+	 * @param port
+	 *            - the new port value, when replacing the port
+	 * @param hostErrors
+	 *            - the host validation errors, when replacing the host
+	 */
+	private Url with(int component, String value, int port, int hostErrors) {
+		// Only an invalid host leaves all the bounds in place
+		Preconditions.checkState((errors & ~UrlErrors.HOST_IS_INVALID.mask()) == 0, "Url is invalid: %s",
+				getValiationErrors());
+		if (!(source instanceof String)) {
+			return stringBacked().with(component, value, port, hostErrors);
+		}
+		int start = bounds[component * 2];
+		if (value == null && start == -1) {
+			return this;
+		}
+		// The region of the source to replace, and what to put in it
+		int from, to;
+		String prefix = "", suffix = "";
+		if (value != null && start != -1) {
+			from = start;
+			to = bounds[component * 2 + 1];
+		} else if (value != null) {
+			from = insertionPoint(component);
+			to = from;
+			if (component == UrlParser.USERNAME) {
+				suffix = "@";
+			} else {
+				prefix = DELIMITERS[component];
+			}
+		} else if (component == UrlParser.USERNAME) {
+			// The whole login, up to the host
+			from = start;
+			to = bounds[UrlParser.HOST * 2];
+		} else {
+			// The component and its delimiter
+			from = start - 1;
+			to = bounds[component * 2 + 1];
+		}
+		String raw = (String) source;
+		int length = raw.length() - (to - from)
+				+ (value == null ? 0 : prefix.length() + value.length() + suffix.length());
+		StringBuilder sb = new StringBuilder(length);
+		sb.append(raw, 0, from);
+		if (value != null) {
+			sb.append(prefix).append(value).append(suffix);
+		}
+		sb.append(raw, to, raw.length());
+		int shift = length - raw.length();
+
+		int[] derivedBounds = bounds.clone();
+		String[] derivedComponents = components == null ? null : components.clone();
+		for (int c = component; c < UrlParser.COMPONENTS; c++) {
+			if (c == component || (value == null && component == UrlParser.USERNAME && c == UrlParser.PASSWORD)) {
+				int newStart = value == null || c != component ? -1 : from + prefix.length();
+				derivedBounds[c * 2] = newStart;
+				derivedBounds[c * 2 + 1] = newStart == -1 ? -1 : newStart + value.length();
+				if (derivedComponents != null) {
+					derivedComponents[c] = newStart == -1 ? null : value;
+				}
+			} else if (derivedBounds[c * 2] != -1) {
+				derivedBounds[c * 2] += shift;
+				derivedBounds[c * 2 + 1] += shift;
+			}
+		}
+		if (component == UrlParser.PORT) {
+			derivedBounds[UrlParser.PORT_VALUE] = port;
+		}
+		Url derived = new Url(sb.toString(), derivedBounds, component == UrlParser.HOST ? hostErrors : errors);
+		derived.components = derivedComponents;
+		return derived;
+	}
 
-		this.port = port;
+	/**
+	 * @return where an absent component goes, right after the present
+	 *         component before it
+	 */
+	private int insertionPoint(int component) {
+		if (component == UrlParser.USERNAME) {
+			return bounds[UrlParser.HOST * 2];
+		}
+		if (component == UrlParser.FRAGMENT) {
+			return source.length();
+		}
+		int c = component - 1;
+		while (bounds[c * 2 + 1] == -1) {
+			c--;
+		}
+		return bounds[c * 2 + 1];
 	}
 
-	protected void setUsername(String username) {
-		this.username = username;
+	/**
+	 * @return this URL, or the same URL over its decoded string if it is
+	 *         backed by non-ASCII bytes, whose offsets are not char offsets
+	 *         and whose chars are not the decoded ones
+	 */
+	Url withCharOffsets() {
+		return hasNonAsciiBytes() ? new Url(getRaw()) : this;
 	}
 
-	protected void setPassword(String password) {
-		this.password = password;
+	/**
+	 * @return this URL, or the same URL over its decoded string if it is
+	 *         backed by bytes. Byte offsets are char offsets for ASCII only,
+	 *         so a non-ASCII URL is parsed again.
+	 */
+	Url stringBacked() {
+		Url url = withCharOffsets();
+		return url.source instanceof String ? url : new Url(getRaw(), bounds, errors);
 	}
 
-	protected void setQuery(String query) {
-		this.query = query;
+	private boolean hasNonAsciiBytes() {
+		if (source instanceof String) {
+			return false;
+		}
+		for (int i = 0; i < source.length(); i++) {
+			if (source.charAt(i) > 0x7f) {
+				return true;
+			}
+		}
+		return false;
 	}
 
-	protected void setFragment(String fragment) {
-		this.fragment = fragment;
+	/**
+	 * @return the canonical address of an IP host: 4 bytes for an IPv4 host
+	 *         (in any form {@link IpC14n} accepts), 16 bytes for a bracketed
+	 *         IPv6 literal; <code>null</code> if the host is missing, invalid
+	 *         or a name
+	 */
+	public byte[] getHostAddress() {
+		int start = bounds[UrlParser.HOST * 2];
+		int end = bounds[UrlParser.HOST * 2 + 1];
+		if (start == -1 || (errors & UrlErrors.HOST_IS_INVALID.mask()) != 0) {
+			return null;
+		}
+		if (source.charAt(start) == '[') {
+			return IP_C14N.c14nIpV6(source.subSequence(start + 1, end - 1).toString());
+		}
+		long ip = IP_C14N.tryParseIpV4(source, start, end);
+		if (ip < 0) {
+			return null;
+		}
+		return new byte[] { (byte) (ip >>> 24), (byte) (ip >>> 16), (byte) (ip >>> 8), (byte) ip };
+	}
+
+	CharSequence getSource() {
+		return source;
+	}
+
+	/**
+	 * @return the start offset (inclusive) of the component within
+	 *         {@link #getSource()}, or -1 if it is absent
+	 */
+	int start(int component) {
+		return bounds[component * 2];
+	}
+
+	/**
+	 * @return the end offset (exclusive) of the component within
+	 *         {@link #getSource()}, or -1 if it is absent
+	 */
+	int end(int component) {
+		return bounds[component * 2 + 1];
+	}
+
+	private void intern(UrlInternPool pool, int component) {
+		int start = bounds[component * 2];
+		if (start == -1) {
+			return;
+		}
+		if (components == null) {
+			components = new String[UrlParser.COMPONENTS];
+		}
+		components[component] = pool.intern(source, start, bounds[component * 2 + 1]);
+	}
+
+	/**
+	 * Cuts the component from the raw URL on first access, and caches it for
+	 * later calls. Absent components are <code>null</code>.
+	 */
+	private String component(int component) {
+		if (bounds[component * 2] == -1) {
+			return null;
+		}
+		String[] cache = components;
+		if (cache == null) {
+			cache = new String[UrlParser.COMPONENTS];
+			components = cache;
+		}
+		String value = cache[component];
+		if (value == null) {
+			value = UrlParser.component(source, bounds, component);
+			cache[component] = value;
+		}
+		return value;
 	}
 
 }
@@ -0,0 +1,367 @@
+/*******************************************************************************
+ * Copyright 2012 Yonatan Graber
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.spicyurl;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.Closeables;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * Columnar parse results for a batch of URLs. Instead of one {@link Url} per
+ * row, the component boundaries of all rows are kept in a single shared
+ * <code>int[]</code>, and the validation errors in another, so parsing a batch
+ * allocates nothing per row. Components are only cut from the raw URL when
+ * asked for, and a batch can be reused for the next one.
+ * <p>
+ * Large batches can be parsed in parallel on a caller supplied executor. The
+ * rows are split into contiguous chunks, each parsed by its own task into its
+ * own slice of the shared arrays, so results are always in input order. If
+ * a task fails, or the executor rejects one, the tasks which haven't started
+ * are cancelled, the running ones are waited for, and the batch is left
+ * empty before the failure is rethrown. Newline-delimited files are read
+ * through a {@link MappedUrlReader} and parsed the same way.
+ * <p>
+ * Not thread safe.
+ */
+public class UrlBatch {
+
+	private static final int ROW = UrlParser.BOUNDS_LENGTH;
+
+	/**
+	 * Smallest number of rows worth handing to a parallel task
+	 */
+	static final int MIN_CHUNK_SIZE = 4096;
+
+	/**
+	 * Parallel tasks per thread, to even out uneven chunks
+	 */
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	private CharSequence[] raws;
+	private int[] bounds;
+	private int[] errors;
+	private int size;
+
+	/**
+	 * Scratch bounds table, reused for every row
+	 */
+	private final int[] scratch = new int[ROW];
+
+	public UrlBatch() {
+		this(16);
+	}
+
+	/**
+	 * @param capacity
+	 *            - number of rows to allocate for up front
+	 */
+	public UrlBatch(int capacity) {
+		Preconditions.checkArgument(capacity >= 0);
+		raws = new CharSequence[capacity];
+		bounds = new int[capacity * ROW];
+		errors = new int[capacity];
+	}
+
+	/**
+	 * Parses a batch of URLs, replacing the previous batch.
+	 * 
+	 * @return this batch
+	 */
+	public UrlBatch parse(List<? extends CharSequence> urls) {
+		reset(urls);
+		parseRows(0, size, scratch);
+		return this;
+	}
+
+	/**
+	 * @see #parse(List)
+	 */
+	public UrlBatch parse(CharSequence[] urls) {
+		return parse(Arrays.asList(Preconditions.checkNotNull(urls)));
+	}
+
+	/**
+	 * Parses a batch of URLs in parallel on the given executor, replacing the
+	 * previous batch. Blocks until all rows are parsed. The work is split for
+	 * the executor's core pool size if it is a {@link ThreadPoolExecutor},
+	 * and for the available processors otherwise.
+	 * 
+	 * @return this batch
+	 */
+	public UrlBatch parse(List<? extends CharSequence> urls, ExecutorService executor) {
+		return parse(urls, executor, parallelism(Preconditions.checkNotNull(executor)));
+	}
+
+	/**
+	 * Parses a batch of URLs in parallel on the given executor, replacing the
+	 * previous batch. Blocks until all rows are parsed.
+	 * 
+	 * @param parallelism
+	 *            - the number of threads the executor runs tasks on, to split
+	 *            the work for
+	 * @return this batch
+	 */
+	public UrlBatch parse(List<? extends CharSequence> urls, ExecutorService executor, int parallelism) {
+		Preconditions.checkNotNull(executor);
+		Preconditions.checkArgument(parallelism > 0, "Parallelism must be positive: %s", parallelism);
+		reset(urls);
+		int chunks = parallelism * CHUNKS_PER_THREAD;
+		int chunkSize = Math.max(MIN_CHUNK_SIZE, (size + chunks - 1) / chunks);
+		if (chunkSize >= size) {
+			parseRows(0, size, scratch);
+			return this;
+		}
+
+		List<Chunk> submitted = new ArrayList<Chunk>();
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		boolean parsed = false;
+		try {
+			for (int from = 0; from < size; from += chunkSize) {
+				Chunk chunk = new Chunk(from, Math.min(size, from + chunkSize));
+				submitted.add(chunk);
+				futures.add(executor.submit(chunk));
+			}
+			for (Future<?> future : futures) {
+				Futures.getUnchecked(future);
+			}
+			parsed = true;
+		} finally {
+			if (!parsed) {
+				for (Future<?> future : futures) {
+					future.cancel(false);
+				}
+				for (Chunk chunk : submitted) {
+					chunk.cancelOrAwait();
+				}
+				clear();
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * @see #parse(List, ExecutorService)
+	 */
+	public UrlBatch parse(CharSequence[] urls, ExecutorService executor) {
+		return parse(Arrays.asList(Preconditions.checkNotNull(urls)), executor);
+	}
+
+	/**
+	 * Parses the non blank lines of a newline-delimited file (UTF-8 or ASCII)
+	 * in parallel on the given executor, replacing the previous batch. The
+	 * file is memory mapped, and the rows are views over its bytes, as
+	 * {@link MappedUrlReader} creates them; only the line breaks are found
+	 * up front, on the calling thread.
+	 * 
+	 * @return this batch
+	 */
+	public UrlBatch parse(File file, ExecutorService executor) throws IOException {
+		Preconditions.checkNotNull(executor);
+		List<CharSequence> lines = new ArrayList<CharSequence>();
+		MappedUrlReader reader = new MappedUrlReader(file);
+		try {
+			while (reader.nextLine()) {
+				lines.add(reader.getLine());
+			}
+		} finally {
+			Closeables.closeQuietly(reader);
+		}
+		return parse(lines, executor);
+	}
+
+	private static int parallelism(ExecutorService executor) {
+		if (executor instanceof ThreadPoolExecutor) {
+			int threads = ((ThreadPoolExecutor) executor).getCorePoolSize();
+			if (threads > 0) {
+				return threads;
+			}
+		}
+		return Runtime.getRuntime().availableProcessors();
+	}
+
+	private void clear() {
+		Arrays.fill(raws, 0, size, null);
+		size = 0;
+	}
+
+	private void reset(List<? extends CharSequence> urls) {
+		Preconditions.checkNotNull(urls);
+		int capacity = urls.size();
+		clear();
+		if (capacity > raws.length) {
+			raws = new CharSequence[capacity];
+			bounds = new int[capacity * ROW];
+			errors = new int[capacity];
+		}
+		for (CharSequence url : urls) {
+			raws[size++] = Preconditions.checkNotNull(url);
+		}
+	}
+
+	private void parseRows(int from, int to, int[] rowScratch) {
+		for (int row = from; row < to; row++) {
+			errors[row] = UrlParser.parse(raws[row], rowScratch);
+			System.arraycopy(rowScratch, 0, bounds, row * ROW, ROW);
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public CharSequence getRaw(int row) {
+		checkRow(row);
+		return raws[row];
+	}
+
+	/**
+	 * @return the validation errors of the row, as a bitmask of
+	 *         {@link UrlErrors#mask()}
+	 */
+	public int getErrorMask(int row) {
+		checkRow(row);
+		return errors[row];
+	}
+
+	public boolean isValid(int row) {
+		return getErrorMask(row) == 0;
+	}
+
+	/**
+	 * @return the start offset (inclusive) of the component in the raw URL,
+	 *         or -1 if it is absent
+	 */
+	public int getStart(int row, UrlComponent component) {
+		checkRow(row);
+		return bounds[row * ROW + component.ordinal() * 2];
+	}
+
+	/**
+	 * @return the end offset (exclusive) of the component in the raw URL, or
+	 *         -1 if it is absent
+	 */
+	public int getEnd(int row, UrlComponent component) {
+		checkRow(row);
+		return bounds[row * ROW + component.ordinal() * 2 + 1];
+	}
+
+	/**
+	 * @return the component, cut from the raw URL, or <code>null</code> if it
+	 *         is absent
+	 */
+	public String get(int row, UrlComponent component) {
+		int start = getStart(row, component);
+		if (start == -1) {
+			return null;
+		}
+		return raws[row].subSequence(start, getEnd(row, component)).toString();
+	}
+
+	public String getScheme(int row) {
+		return get(row, UrlComponent.SCHEME);
+	}
+
+	public String getHost(int row) {
+		return get(row, UrlComponent.HOST);
+	}
+
+	public int getPort(int row) {
+		checkRow(row);
+		return bounds[row * ROW + UrlParser.PORT_VALUE];
+	}
+
+	public String getPath(int row) {
+		return get(row, UrlComponent.PATH);
+	}
+
+	public String getQuery(int row) {
+		return get(row, UrlComponent.QUERY);
+	}
+
+	public String getFragment(int row) {
+		return get(row, UrlComponent.FRAGMENT);
+	}
+
+	/**
+	 * @return the row as a {@link Url}, built from the already known
+	 *         boundaries without parsing it again
+	 */
+	public Url toUrl(int row) {
+		checkRow(row);
+		int[] urlBounds = new int[ROW];
+		System.arraycopy(bounds, row * ROW, urlBounds, 0, ROW);
+		// Rows read from a file are byte views, which the bounds are offsets
+		// into; anything else is copied, as it may change
+		CharSequence raw = raws[row] instanceof ByteSequence ? raws[row] : raws[row].toString();
+		return new Url(raw, urlBounds, errors[row]);
+	}
+
+	private void checkRow(int row) {
+		Preconditions.checkElementIndex(row, size);
+	}
+
+	/**
+	 * The rows of one parallel task. A chunk is claimed by whichever comes
+	 * first, the task running it or a failed parse cancelling it, so a
+	 * cancelled parse can tell the chunks that will never run from the ones
+	 * it has to wait for.
+	 */
+	private final class Chunk implements Runnable {
+		private final int from;
+		private final int to;
+		private final AtomicBoolean claimed = new AtomicBoolean();
+		private final CountDownLatch done = new CountDownLatch(1);
+
+		Chunk(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public void run() {
+			if (!claimed.compareAndSet(false, true)) {
+				return;
+			}
+			try {
+				parseRows(from, to, new int[ROW]);
+			} finally {
+				done.countDown();
+			}
+		}
+
+		/**
+		 * Keeps the chunk from running if it hasn't started, or waits for it
+		 * to finish
+		 */
+		void cancelOrAwait() {
+			if (!claimed.compareAndSet(false, true)) {
+				Uninterruptibles.awaitUninterruptibly(done);
+			}
+		}
+	}
+}
@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright 2012 Yonatan Graber
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.spicyurl;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.cache.Weigher;
+
+/**
+ * A bounded, concurrent cache of parsed {@link Url}s keyed by the raw URL,
+ * for skewed traffic where a few URLs are parsed over and over. Urls are
+ * immutable, so a cached Url is shared by all the threads asking for it.
+ * <p>
+ * Eviction is approximately least recently used, per segment of the cache,
+ * either by the number of URLs or by their total length. Hit, miss and
+ * eviction counts are available through {@link #stats()}, for sizing the
+ * cache. Thread safe.
+ */
+public class UrlCache {
+
+	private final LoadingCache<String, Url> cache;
+
+	private UrlCache(LoadingCache<String, Url> cache) {
+		this.cache = cache;
+	}
+
+	private static CacheLoader<String, Url> loader(final UrlInternPool pool) {
+		return new CacheLoader<String, Url>() {
+			@Override
+			public Url load(String raw) {
+				return pool == null ? new Url(raw) : new Url(raw, pool);
+			}
+		};
+	}
+
+	/**
+	 * All caches are built from here, so that they all keep stats. Guava 11
+	 * records stats unless told not to, and has no recordStats(); from
+	 * Guava 12 on, call it here.
+	 */
+	private static CacheBuilder<Object, Object> newBuilder() {
+		return CacheBuilder.newBuilder();
+	}
+
+	/**
+	 * @return a cache of at most <code>maximumSize</code> URLs
+	 */
+	public static UrlCache ofMaximumSize(long maximumSize) {
+		return new UrlCache(newBuilder().maximumSize(maximumSize).build(loader(null)));
+	}
+
+	/**
+	 * @return a cache of URLs of a total length of at most
+	 *         <code>maximumLength</code> chars, so a few very long URLs do
+	 *         not take the place of many short ones
+	 */
+	public static UrlCache ofMaximumLength(long maximumLength) {
+		return new UrlCache(newBuilder().maximumWeight(maximumLength).weigher(new Weigher<String, Url>() {
+			@Override
+			public int weigh(String raw, Url url) {
+				return raw.length();
+			}
+		}).build(loader(null)));
+	}
+
+	/**
+	 * @return a cache of at most <code>maximumSize</code> URLs, sharing their
+	 *         hosts and schemes through <code>pool</code>
+	 */
+	public static UrlCache ofMaximumSize(long maximumSize, UrlInternPool pool) {
+		Preconditions.checkNotNull(pool);
+		return new UrlCache(newBuilder().maximumSize(maximumSize).build(loader(pool)));
+	}
+
+	/**
+	 * @return the parsed URL, from the cache if it is there
+	 */
+	public Url get(String url) {
+		Preconditions.checkArgument(StringUtils.isNotBlank(url));
+		return cache.getUnchecked(url);
+	}
+
+	/**
+	 * @return the cached URL, or <code>null</code> if it is not cached. Does
+	 *         not parse.
+	 */
+	public Url getIfPresent(String url) {
+		return cache.getIfPresent(Preconditions.checkNotNull(url));
+	}
+
+	/**
+	 * @return the number of cached URLs (approximately, under concurrent
+	 *         updates)
+	 */
+	public long size() {
+		return cache.size();
+	}
+
+	/**
+	 * @return hit, miss, load and eviction counts since the cache was created
+	 */
+	public CacheStats stats() {
+		return cache.stats();
+	}
+
+	public void invalidateAll() {
+		cache.invalidateAll();
+	}
+}
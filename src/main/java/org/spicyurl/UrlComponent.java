@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Copyright 2012 Yonatan Graber
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.spicyurl;
+
+/**
+ * The components {@link UrlParser} records the boundaries of, in bounds table
+ * order.
+ */
+public enum UrlComponent {
+	SCHEME,
+
+	USERNAME,
+
+	PASSWORD,
+
+	HOST,
+
+	/**
+	 * The port, as written (even if it is not a valid port)
+	 */
+	PORT,
+
+	/**
+	 * The path, without its leading '/'
+	 */
+	PATH,
+
+	QUERY,
+
+	FRAGMENT;
+}
@@ -1,5 +1,9 @@
 package org.spicyurl;
 
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
 public enum UrlErrors {
 	/**
 	 * Unknown URL error
@@ -21,5 +25,30 @@ public enum UrlErrors {
 	/**
 	 * Host is invalid
 	 */
-	HOST_IS_INVALID,
-}
\ No newline at end of file
+	HOST_IS_INVALID;
+
+	private static final UrlErrors[] ERRORS = values();
+
+	/**
+	 * @return the bit of this error in {@link Url#getErrorMask()}
+	 */
+	public int mask() {
+		return 1 << ordinal();
+	}
+
+	/**
+	 * @return an unmodifiable view of the errors set in the given mask
+	 */
+	public static Set<UrlErrors> fromMask(int mask) {
+		if (mask == 0) {
+			return Collections.emptySet();
+		}
+		EnumSet<UrlErrors> errors = EnumSet.noneOf(UrlErrors.class);
+		for (UrlErrors err : ERRORS) {
+			if ((mask & err.mask()) != 0) {
+				errors.add(err);
+			}
+		}
+		return Collections.unmodifiableSet(errors);
+	}
+}
@@ -0,0 +1,365 @@
+/*******************************************************************************
+ * Copyright 2012 Yonatan Graber
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.spicyurl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.Closeables;
+
+/**
+ * A set of URL fingerprints ({@link Url#fingerprint()}) for remembering
+ * seen URLs at crawler scale, kept off heap: 8 bytes per URL plus the free
+ * slots, and nothing for the garbage collector to trace.
+ * <p>
+ * Fingerprints are split by their top bits into segments, each an open
+ * addressing table with linear probing in a direct {@link ByteBuffer},
+ * indexed by the low bits of the fingerprint. Each segment has its own
+ * lock, so threads adding to different segments don't contend, and each
+ * grows on its own, doubling when it is 3/4 full. A segment holds at most
+ * 2^27 slots (1 GB), near the most a buffer can, and so at most 3/4 of that
+ * in fingerprints; pick enough segments up front for the expected size.
+ * <p>
+ * The set can be saved to a local file and loaded back, so it survives
+ * restarts. Fingerprints are stored little-endian, so the file is portable.
+ * Thread safe. The direct buffers are freed when the set is garbage
+ * collected.
+ */
+public final class UrlFingerprintSet {
+
+	private static final int MAGIC = 0x55524c46;
+	private static final int VERSION = 1;
+	private static final int HEADER_LENGTH = 13;
+	private static final int SEGMENT_HEADER_LENGTH = 8;
+	private static final int MIN_SEGMENT_CAPACITY = 16;
+	private static final int MAX_SEGMENT_CAPACITY = 1 << 27;
+	private static final int MAX_SEGMENTS = 1 << 16;
+	private static final int DEFAULT_CONCURRENCY = 16;
+
+	private final Segment[] segments;
+	private final int segmentShift;
+
+	/**
+	 * 0 marks a free slot, so the zero fingerprint is kept aside
+	 */
+	private final AtomicBoolean zero = new AtomicBoolean();
+
+	/**
+	 * A set for about a million fingerprints before it first grows
+	 */
+	public UrlFingerprintSet() {
+		this(1 << 20, DEFAULT_CONCURRENCY);
+	}
+
+	/**
+	 * @param expectedSize
+	 *            - the number of fingerprints to size the set for; it grows
+	 *            beyond that as needed
+	 * @param segments
+	 *            - the number of segments, rounded up to a power of 2. More
+	 *            segments allow more concurrent adds and a larger set.
+	 */
+	public UrlFingerprintSet(long expectedSize, int segments) {
+		Preconditions.checkArgument(expectedSize >= 0, "Expected size must not be negative: %s", expectedSize);
+		Preconditions.checkArgument(segments > 0 && segments <= MAX_SEGMENTS, "Segments must be 1 to %s: %s",
+				MAX_SEGMENTS, segments);
+		int count = segments == 1 ? 1 : Integer.highestOneBit(segments - 1) << 1;
+		long perSegment = expectedSize / count * 4 / 3 + 1;
+		int capacity = MIN_SEGMENT_CAPACITY;
+		while (capacity < perSegment && capacity < MAX_SEGMENT_CAPACITY) {
+			capacity <<= 1;
+		}
+		this.segments = new Segment[count];
+		for (int i = 0; i < count; i++) {
+			this.segments[i] = new Segment(capacity);
+		}
+		this.segmentShift = 64 - Integer.numberOfTrailingZeros(count);
+	}
+
+	private UrlFingerprintSet(Segment[] segments, boolean zero) {
+		this.segments = segments;
+		this.segmentShift = 64 - Integer.numberOfTrailingZeros(segments.length);
+		this.zero.set(zero);
+	}
+
+	/**
+	 * @return <code>true</code> iff the URL was not in the set before
+	 */
+	public boolean add(Url url) {
+		return add(url.fingerprint());
+	}
+
+	/**
+	 * @return <code>true</code> iff the fingerprint was not in the set before
+	 * @throws IllegalStateException
+	 *             if the segment of the fingerprint is 3/4 full at its
+	 *             maximal capacity
+	 */
+	public boolean add(long fingerprint) {
+		if (fingerprint == 0) {
+			return zero.compareAndSet(false, true);
+		}
+		return segment(fingerprint).add(fingerprint);
+	}
+
+	public boolean contains(Url url) {
+		return contains(url.fingerprint());
+	}
+
+	public boolean contains(long fingerprint) {
+		if (fingerprint == 0) {
+			return zero.get();
+		}
+		return segment(fingerprint).contains(fingerprint);
+	}
+
+	/**
+	 * @return the number of fingerprints; only a snapshot while others add
+	 */
+	public long size() {
+		long size = zero.get() ? 1 : 0;
+		for (Segment segment : segments) {
+			size += segment.size();
+		}
+		return size;
+	}
+
+	/**
+	 * @return the off-heap memory taken by the set, in bytes
+	 */
+	public long memoryUsage() {
+		long bytes = 0;
+		for (Segment segment : segments) {
+			bytes += segment.capacity() * 8L;
+		}
+		return bytes;
+	}
+
+	/**
+	 * Saves the set to a file, replacing it. The set is written to a
+	 * temporary file next to it, which is then renamed over it, so a failed
+	 * save leaves the previous file as it was. Each segment is locked while
+	 * it is written, so fingerprints added concurrently may or may not make
+	 * it to the file.
+	 */
+	public void save(File file) throws IOException {
+		File temp = File.createTempFile("fingerprints", ".tmp", file.getAbsoluteFile().getParentFile());
+		boolean saved = false;
+		try {
+			FileOutputStream out = new FileOutputStream(temp);
+			boolean threw = true;
+			try {
+				FileChannel channel = out.getChannel();
+				ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+				header.putInt(MAGIC).putInt(VERSION).putInt(segments.length).put((byte) (zero.get() ? 1 : 0));
+				writeFully(channel, header);
+				for (Segment segment : segments) {
+					segment.writeTo(channel);
+				}
+				channel.force(true);
+				threw = false;
+			} finally {
+				Closeables.close(out, threw);
+			}
+			// Some platforms don't rename over an existing file
+			if (!temp.renameTo(file) && !(file.delete() && temp.renameTo(file))) {
+				throw new IOException("Can't rename " + temp + " to " + file);
+			}
+			saved = true;
+		} finally {
+			if (!saved) {
+				temp.delete();
+			}
+		}
+	}
+
+	/**
+	 * Loads a set saved by {@link #save(File)}
+	 * 
+	 * @throws IOException
+	 *             if the file can't be read, or is not a saved set
+	 */
+	public static UrlFingerprintSet load(File file) throws IOException {
+		FileInputStream in = new FileInputStream(file);
+		try {
+			FileChannel channel = in.getChannel();
+			ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+			readFully(channel, header);
+			int count = header.getInt(4 + 4);
+			if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || count <= 0 || count > MAX_SEGMENTS
+					|| Integer.bitCount(count) != 1) {
+				throw new IOException("Not a saved fingerprint set: " + file);
+			}
+			Segment[] segments = new Segment[count];
+			for (int i = 0; i < count; i++) {
+				segments[i] = Segment.readFrom(channel, file);
+			}
+			return new UrlFingerprintSet(segments, header.get(12) != 0);
+		} finally {
+			Closeables.closeQuietly(in);
+		}
+	}
+
+	private Segment segment(long fingerprint) {
+		// The top bits pick the segment, the low bits the slot within it
+		return segments.length == 1 ? segments[0] : segments[(int) (fingerprint >>> segmentShift)];
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) == -1) {
+				throw new IOException("Unexpected end of a saved fingerprint set");
+			}
+		}
+	}
+
+	/**
+	 * An open addressing table of fingerprints, 0 marking a free slot
+	 */
+	private static final class Segment {
+		private ByteBuffer slots;
+		private int mask;
+		private int size;
+		private int resizeAt;
+
+		Segment(int capacity) {
+			setSlots(allocate(capacity));
+		}
+
+		synchronized boolean add(long fingerprint) {
+			int offset = find(fingerprint);
+			if (slots.getLong(offset) != 0) {
+				return false;
+			}
+			if (size >= resizeAt) {
+				grow();
+				offset = find(fingerprint);
+			}
+			slots.putLong(offset, fingerprint);
+			size++;
+			return true;
+		}
+
+		synchronized boolean contains(long fingerprint) {
+			return slots.getLong(find(fingerprint)) != 0;
+		}
+
+		synchronized int size() {
+			return size;
+		}
+
+		synchronized int capacity() {
+			return mask + 1;
+		}
+
+		/**
+		 * @return the byte offset of the fingerprint's slot, or of the free
+		 *         slot it would take
+		 */
+		private int find(long fingerprint) {
+			int i = (int) fingerprint & mask;
+			while (true) {
+				long slot = slots.getLong(i << 3);
+				if (slot == 0 || slot == fingerprint) {
+					return i << 3;
+				}
+				i = (i + 1) & mask;
+			}
+		}
+
+		private void grow() {
+			int capacity = mask + 1;
+			if (capacity == MAX_SEGMENT_CAPACITY) {
+				throw new IllegalStateException("Fingerprint set segment is full at " + size
+						+ " fingerprints; use more segments");
+			}
+			ByteBuffer old = slots;
+			setSlots(allocate(capacity * 2));
+			for (int i = 0; i < capacity; i++) {
+				long fingerprint = old.getLong(i << 3);
+				if (fingerprint != 0) {
+					slots.putLong(find(fingerprint), fingerprint);
+				}
+			}
+		}
+
+		private void setSlots(ByteBuffer slots) {
+			this.slots = slots;
+			int capacity = slots.capacity() >>> 3;
+			this.mask = capacity - 1;
+			this.resizeAt = resizeAt(capacity);
+		}
+
+		private static int resizeAt(int capacity) {
+			return capacity / 4 * 3;
+		}
+
+		synchronized void writeTo(FileChannel channel) throws IOException {
+			ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(mask + 1).putInt(size);
+			writeFully(channel, header);
+			ByteBuffer data = slots.duplicate();
+			data.position(data.capacity());
+			writeFully(channel, data);
+		}
+
+		static Segment readFrom(FileChannel channel, File file) throws IOException {
+			ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+			readFully(channel, header);
+			int capacity = header.getInt(0);
+			int size = header.getInt(4);
+			if (capacity < MIN_SEGMENT_CAPACITY || capacity > MAX_SEGMENT_CAPACITY || Integer.bitCount(capacity) != 1
+					|| size < 0 || size > resizeAt(capacity)) {
+				throw new IOException("Not a saved fingerprint set: " + file);
+			}
+			Segment segment = new Segment(capacity);
+			segment.slots.clear();
+			readFully(channel, segment.slots);
+			segment.slots.clear();
+			// Probes only end at a free slot, so the slots must hold no more
+			// fingerprints than the header says
+			int occupied = 0;
+			for (int i = 0; i < capacity; i++) {
+				if (segment.slots.getLong(i << 3) != 0) {
+					occupied++;
+				}
+			}
+			if (occupied != size) {
+				throw new IOException("Not a saved fingerprint set: " + file);
+			}
+			segment.size = size;
+			return segment;
+		}
+
+		private static ByteBuffer allocate(int capacity) {
+			return ByteBuffer.allocateDirect(capacity << 3).order(ByteOrder.LITTLE_ENDIAN);
+		}
+	}
+}
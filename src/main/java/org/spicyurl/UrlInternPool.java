@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright 2012 Yonatan Graber
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.spicyurl;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A bounded, lock-free pool of shared host and scheme strings, so that many
+ * {@link Url}s of the same host hold a single String instead of one copy
+ * each, and comparing them is mostly an identity check.
+ * <p>
+ * A char range is looked up by its hash before any substring is made; a
+ * substring is only created on a miss. The pool is a direct-mapped table of
+ * a fixed capacity: a miss replaces whatever string was in its slot, so the
+ * pool never grows, and the hot strings stay in it. Well-known schemes
+ * always map to shared constants, without touching the table.
+ * <p>
+ * Interning is best effort; two equal ranges may get different instances
+ * when they collide, but the result always equals the range. Thread safe.
+ */
+public final class UrlInternPool {
+
+	public static final int DEFAULT_CAPACITY = 1 << 16;
+
+	private static final String[] WELL_KNOWN_SCHEMES = { "http", "https", "ftp", "ws", "wss", "file", "mailto" };
+
+	private final AtomicReferenceArray<String> table;
+	private final int mask;
+
+	public UrlInternPool() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity
+	 *            - the maximal number of pooled strings, rounded up to a
+	 *            power of two
+	 */
+	public UrlInternPool(int capacity) {
+		Preconditions.checkArgument(capacity > 0 && capacity <= 1 << 30, "Illegal capacity %s", capacity);
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) {
+			size <<= 1;
+		}
+		table = new AtomicReferenceArray<String>(size);
+		mask = size - 1;
+	}
+
+	public int capacity() {
+		return table.length();
+	}
+
+	/**
+	 * @return a pooled string equal to <code>s</code>
+	 */
+	public String intern(CharSequence s) {
+		return intern(Preconditions.checkNotNull(s), 0, s.length());
+	}
+
+	/**
+	 * @return a pooled string equal to the chars of <code>s</code> between
+	 *         <code>start</code> (inclusive) and <code>end</code> (exclusive)
+	 */
+	public String intern(CharSequence s, int start, int end) {
+		Preconditions.checkPositionIndexes(start, end, s.length());
+		String scheme = wellKnownScheme(s, start, end);
+		if (scheme != null) {
+			return scheme;
+		}
+		// Same hash as String.hashCode(), which the pooled strings cache
+		int hash = 0;
+		for (int i = start; i < end; i++) {
+			char c = s.charAt(i);
+			if (c > 0x7f && s instanceof ByteSequence) {
+				// Multi-byte UTF-8, the bytes are not the chars of the string
+				return ((ByteSequence) s).substring(start, end);
+			}
+			hash = 31 * hash + c;
+		}
+		int slot = (hash ^ (hash >>> 16)) & mask;
+		String pooled = table.get(slot);
+		if (pooled != null && pooled.hashCode() == hash && regionEquals(pooled, s, start, end)) {
+			return pooled;
+		}
+		String value = s instanceof ByteSequence ? ((ByteSequence) s).substring(start, end) : s.subSequence(start,
+				end).toString();
+		table.lazySet(slot, value);
+		return value;
+	}
+
+	private static String wellKnownScheme(CharSequence s, int start, int end) {
+		if (end - start > 6) {
+			return null;
+		}
+		for (String scheme : WELL_KNOWN_SCHEMES) {
+			if (regionEquals(scheme, s, start, end)) {
+				return scheme;
+			}
+		}
+		return null;
+	}
+
+	private static boolean regionEquals(String pooled, CharSequence s, int start, int end) {
+		if (pooled.length() != end - start) {
+			return false;
+		}
+		for (int i = start; i < end; i++) {
+			if (pooled.charAt(i - start) != s.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
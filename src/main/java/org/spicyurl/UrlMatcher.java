@@ -0,0 +1,529 @@
+/*******************************************************************************
+ * Copyright 2012 Yonatan Graber
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.spicyurl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Matches URLs against a large set of rules at once, each rule identified
+ * by an int id. A rule is written as
+ * <code>[scheme://]host[:port][/path]</code>:
+ * <ul>
+ * <li>Without a scheme, or with <code>*</code>, any scheme matches</li>
+ * <li>The host is matched exactly, ignoring case. <code>*.example.com</code>
+ * matches the subdomains of <code>example.com</code> at any depth, but not
+ * <code>example.com</code> itself, and <code>*</code> matches any host. A
+ * host with non-ASCII labels matches in both its Unicode and its
+ * <code>xn--</code> form, so <code>bücher.de</code> matches
+ * <code>xn--bcher-kva.de</code> too, and the other way round.</li>
+ * <li>Without a port, any port matches. A port matches the explicit port of
+ * the URL, or the default port of its scheme</li>
+ * <li>Without a path, any path matches. The path is matched exactly, as it
+ * is written, except that a trailing <code>/*</code> matches anything below
+ * the path, such as <code>/ads/*</code> matching <code>/ads/</code> and
+ * <code>/ads/banner/1.gif</code>. A missing path is the same as
+ * <code>/</code>.</li>
+ * </ul>
+ * Queries and fragments are not matched.
+ * <p>
+ * The rules are compiled into a single trie, flattened into arrays the way
+ * {@link PublicSuffixList} is: the host labels of the rules, right to left,
+ * and under each host, the path segments. Matching walks the host and path
+ * ranges of the URL once, binary searching each label and segment among the
+ * children of the previous one, so its time depends on the length of the
+ * URL and the number of matching rules, not on the number of rules. The
+ * scheme and port of a rule are only checked once its host and path match.
+ * <p>
+ * Immutable and thread safe. Build with {@link #builder()}.
+ */
+public final class UrlMatcher {
+
+	private static final int[] NO_MATCHES = new int[0];
+
+	/*
+	 * Labels of the children which start the path trie of a host node. A
+	 * '/' can't be part of a host label, so they never clash with one.
+	 */
+	private static final String PATH = "/";
+	private static final String SUBDOMAIN_PATH = "*/";
+
+	/**
+	 * The children of node <code>i</code> are the nodes
+	 * <code>childStart[i]</code> to <code>childStart[i + 1]</code>
+	 * (exclusive), sorted by label length, then by label. The root is node
+	 * 0.
+	 */
+	private final int[] childStart;
+	private final int[] labelStart;
+	private final char[] labels;
+
+	/**
+	 * Rules which match when a walk ends at node <code>i</code>:
+	 * <code>exactRules[exactStart[i]]</code> to
+	 * <code>exactRules[exactStart[i + 1]]</code> (exclusive). These are the
+	 * rules for exactly this host with any path, or for exactly this path.
+	 */
+	private final int[] exactStart;
+	private final int[] exactRules;
+
+	/**
+	 * Rules which match when a walk passes node <code>i</code>, with labels
+	 * or segments left: the rules for the subdomains of this host with any
+	 * path, or for anything below this path.
+	 */
+	private final int[] prefixStart;
+	private final int[] prefixRules;
+
+	/*
+	 * By rule index
+	 */
+	private final int[] ids;
+	private final String[] schemes;
+	private final int[] ports;
+
+	private UrlMatcher(Builder builder) {
+		Node root = builder.root;
+		int nodes = root.count();
+		childStart = new int[nodes + 1];
+		labelStart = new int[nodes + 1];
+		labels = new char[root.chars()];
+		exactStart = new int[nodes + 1];
+		prefixStart = new int[nodes + 1];
+		exactRules = new int[root.exactRules()];
+		prefixRules = new int[root.prefixRules()];
+		// Breadth first, so the children of every node are numbered in a row
+		Queue<Node> queue = new ArrayDeque<Node>();
+		queue.add(root);
+		int next = 1;
+		int labelEnd = 0;
+		int exactEnd = 0;
+		int prefixEnd = 0;
+		for (int i = 0; i < nodes; i++) {
+			Node node = queue.remove();
+			labelStart[i] = labelEnd;
+			node.label.getChars(0, node.label.length(), labels, labelEnd);
+			labelEnd += node.label.length();
+			exactStart[i] = exactEnd;
+			for (Integer rule : node.exact) {
+				exactRules[exactEnd++] = rule;
+			}
+			prefixStart[i] = prefixEnd;
+			for (Integer rule : node.prefix) {
+				prefixRules[prefixEnd++] = rule;
+			}
+			childStart[i] = next;
+			next += node.children.size();
+			queue.addAll(node.children.values());
+		}
+		childStart[nodes] = next;
+		labelStart[nodes] = labelEnd;
+		exactStart[nodes] = exactEnd;
+		prefixStart[nodes] = prefixEnd;
+		int rules = builder.ids.size();
+		ids = new int[rules];
+		ports = new int[rules];
+		schemes = builder.schemes.toArray(new String[rules]);
+		for (int i = 0; i < rules; i++) {
+			ids[i] = builder.ids.get(i);
+			ports[i] = builder.ports.get(i);
+		}
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * @return the number of rules
+	 */
+	public int size() {
+		return ids.length;
+	}
+
+	/**
+	 * @return the ids of the rules matching the URL, sorted and distinct;
+	 *         an empty array if there are none
+	 */
+	public int[] match(Url url) {
+		url = url.withCharOffsets();
+		Matches matches = new Matches(url, false);
+		match(url, matches);
+		return matches.ids();
+	}
+
+	/**
+	 * @return <code>true</code> iff any rule matches the URL. Stops at the
+	 *         first match.
+	 */
+	public boolean matches(Url url) {
+		url = url.withCharOffsets();
+		Matches matches = new Matches(url, true);
+		match(url, matches);
+		return matches.count > 0;
+	}
+
+	private void match(Url url, Matches matches) {
+		int start = url.start(UrlParser.HOST);
+		if (start == -1) {
+			return;
+		}
+		CharSequence source = url.getSource();
+		int end = url.end(UrlParser.HOST);
+		if (end > start && source.charAt(end - 1) == '.') {
+			end--;
+		}
+		int node = 0;
+		int labelEnd = end;
+		while (labelEnd >= start) {
+			// Labels are left, so the subdomain rules of this host apply
+			matches.add(prefixRules, prefixStart[node], prefixStart[node + 1]);
+			matchPath(findChild(node, SUBDOMAIN_PATH, 0, SUBDOMAIN_PATH.length(), false), url, matches);
+			int labelStart = labelEnd;
+			while (labelStart > start && source.charAt(labelStart - 1) != '.') {
+				labelStart--;
+			}
+			node = findChild(node, source, labelStart, labelEnd, true);
+			if (node == -1 || matches.done()) {
+				return;
+			}
+			labelEnd = labelStart - 1;
+		}
+		matches.add(exactRules, exactStart[node], exactStart[node + 1]);
+		matchPath(findChild(node, PATH, 0, PATH.length(), false), url, matches);
+	}
+
+	private void matchPath(int node, Url url, Matches matches) {
+		if (node == -1 || matches.done()) {
+			return;
+		}
+		CharSequence source = url.getSource();
+		int start = url.start(UrlParser.PATH);
+		int end = url.end(UrlParser.PATH);
+		if (start == -1) {
+			start = end = 0;
+		}
+		for (int segmentStart = start;; segmentStart++) {
+			// A segment is left, so the rules for anything below this path
+			// apply
+			matches.add(prefixRules, prefixStart[node], prefixStart[node + 1]);
+			int segmentEnd = segmentStart;
+			while (segmentEnd < end && source.charAt(segmentEnd) != '/') {
+				segmentEnd++;
+			}
+			node = findChild(node, source, segmentStart, segmentEnd, false);
+			if (node == -1 || matches.done()) {
+				return;
+			}
+			if (segmentEnd == end) {
+				matches.add(exactRules, exactStart[node], exactStart[node + 1]);
+				return;
+			}
+			segmentStart = segmentEnd;
+		}
+	}
+
+	private int findChild(int node, CharSequence s, int start, int end, boolean ignoreCase) {
+		int low = childStart[node];
+		int high = childStart[node + 1] - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int cmp = compareLabel(mid, s, start, end, ignoreCase);
+			if (cmp < 0) {
+				low = mid + 1;
+			} else if (cmp > 0) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	private int compareLabel(int node, CharSequence s, int start, int end, boolean ignoreCase) {
+		int from = labelStart[node];
+		int length = labelStart[node + 1] - from;
+		if (length != end - start) {
+			return length - (end - start);
+		}
+		for (int i = 0; i < length; i++) {
+			char c = s.charAt(start + i);
+			if (ignoreCase && c >= 'A' && c <= 'Z') {
+				c += 'a' - 'A';
+			}
+			int diff = labels[from + i] - c;
+			if (diff != 0) {
+				return diff;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * The rules found so far, by index, checked against the scheme and port
+	 * of the URL as they are added
+	 */
+	private final class Matches {
+		private final CharSequence source;
+		private final int schemeEnd;
+		private final int port;
+		private final boolean first;
+		private int[] rules = NO_MATCHES;
+		private int count;
+
+		Matches(Url url, boolean first) {
+			this.source = url.getSource();
+			this.schemeEnd = url.end(UrlParser.SCHEME);
+			int port = url.getPort();
+			this.port = port != -1 || schemeEnd == -1 ? port : UrlNormalizer.defaultPort(source, schemeEnd);
+			this.first = first;
+		}
+
+		void add(int[] candidates, int from, int to) {
+			for (int i = from; i < to && !done(); i++) {
+				int rule = candidates[i];
+				if ((ports[rule] == -1 || ports[rule] == port) && schemeMatches(schemes[rule])) {
+					if (count == rules.length) {
+						rules = Arrays.copyOf(rules, Math.max(8, count * 2));
+					}
+					rules[count++] = ids[rule];
+				}
+			}
+		}
+
+		boolean done() {
+			return first && count > 0;
+		}
+
+		int[] ids() {
+			if (count == 0) {
+				return NO_MATCHES;
+			}
+			Arrays.sort(rules, 0, count);
+			int distinct = 1;
+			for (int i = 1; i < count; i++) {
+				if (rules[i] != rules[distinct - 1]) {
+					rules[distinct++] = rules[i];
+				}
+			}
+			return Arrays.copyOf(rules, distinct);
+		}
+
+		private boolean schemeMatches(String scheme) {
+			if (scheme == null) {
+				return true;
+			}
+			if (schemeEnd != scheme.length()) {
+				return false;
+			}
+			for (int i = 0; i < schemeEnd; i++) {
+				char c = source.charAt(i);
+				if (c >= 'A' && c <= 'Z') {
+					c += 'a' - 'A';
+				}
+				if (c != scheme.charAt(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Collects rules, and compiles them into a {@link UrlMatcher}. Not thread
+	 * safe.
+	 */
+	public static final class Builder {
+		private final Node root = new Node("");
+		private final List<Integer> ids = new ArrayList<Integer>();
+		private final List<String> schemes = new ArrayList<String>();
+		private final List<Integer> ports = new ArrayList<Integer>();
+
+		private Builder() {
+		}
+
+		/**
+		 * Adds a rule; see {@link UrlMatcher} for the syntax. The same id may
+		 * be given to several rules.
+		 * 
+		 * @throws IllegalArgumentException
+		 *             if the rule is malformed
+		 */
+		public Builder add(int id, String rule) {
+			Preconditions.checkNotNull(rule);
+			String rest = rule;
+			String scheme = null;
+			int schemeEnd = rest.indexOf("://");
+			if (schemeEnd != -1) {
+				scheme = rest.substring(0, schemeEnd).toLowerCase(Locale.ENGLISH);
+				Preconditions.checkArgument(!scheme.isEmpty(), "Scheme is missing: %s", rule);
+				if (scheme.equals("*")) {
+					scheme = null;
+				}
+				rest = rest.substring(schemeEnd + 3);
+			}
+			int slash = rest.indexOf('/');
+			String host = slash == -1 ? rest : rest.substring(0, slash);
+			String path = slash == -1 ? null : rest.substring(slash + 1);
+			int port = -1;
+			int colon = host.lastIndexOf(':');
+			if (colon > host.lastIndexOf(']')) {
+				port = parsePort(host.substring(colon + 1), rule);
+				host = host.substring(0, colon);
+			}
+			host = host.toLowerCase(Locale.ENGLISH);
+			if (host.endsWith(".")) {
+				host = host.substring(0, host.length() - 1);
+			}
+			Preconditions.checkArgument(!host.isEmpty(), "Host is missing: %s", rule);
+
+			boolean subdomains = host.equals("*") || host.startsWith("*.");
+			boolean prefix = subdomains;
+			if (path != null) {
+				prefix = path.equals("*") || path.endsWith("/*");
+				if (prefix) {
+					path = path.substring(0, Math.max(0, path.length() - 2));
+				}
+			}
+			int index = ids.size();
+			for (String form : hostForms(host, rule)) {
+				Node node = root;
+				if (!form.equals("*")) {
+					String[] hostLabels = (subdomains ? form.substring(2) : form).split("\\.", -1);
+					for (int i = hostLabels.length - 1; i >= 0; i--) {
+						Preconditions.checkArgument(!hostLabels[i].isEmpty() && hostLabels[i].indexOf('*') == -1,
+								"Host is invalid: %s", rule);
+						node = node.child(hostLabels[i]);
+					}
+				}
+				if (path != null) {
+					node = node.child(subdomains ? SUBDOMAIN_PATH : PATH);
+					if (!prefix || !path.isEmpty()) {
+						for (String segment : path.split("/", -1)) {
+							node = node.child(segment);
+						}
+					}
+				}
+				(prefix ? node.prefix : node.exact).add(index);
+			}
+			ids.add(id);
+			schemes.add(scheme);
+			ports.add(port);
+			return this;
+		}
+
+		public UrlMatcher build() {
+			return new UrlMatcher(this);
+		}
+
+		/**
+		 * @return the host as it is, and in its <code>xn--</code> and Unicode
+		 *         forms if they differ
+		 */
+		private static Set<String> hostForms(String host, String rule) {
+			Set<String> forms = new LinkedHashSet<String>(4);
+			forms.add(host);
+			try {
+				forms.add(Idn.toAscii(host));
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException("Host is invalid: " + rule, e);
+			}
+			forms.add(Idn.toUnicode(host).toLowerCase(Locale.ENGLISH));
+			return forms;
+		}
+
+		private static int parsePort(String port, String rule) {
+			Preconditions.checkArgument(!port.isEmpty() && port.length() <= 5 && port.matches("[0-9]+"),
+					"Port is invalid: %s", rule);
+			int value = Integer.parseInt(port);
+			Preconditions.checkArgument(value <= 65535, "Port is invalid: %s", rule);
+			return value;
+		}
+	}
+
+	private static final Comparator<String> BY_LENGTH = new Comparator<String>() {
+		@Override
+		public int compare(String a, String b) {
+			return a.length() != b.length() ? a.length() - b.length() : a.compareTo(b);
+		}
+	};
+
+	/**
+	 * A node of the trie while it is being built
+	 */
+	private static final class Node {
+		private final String label;
+		private final Map<String, Node> children = new TreeMap<String, Node>(BY_LENGTH);
+		private final List<Integer> exact = new ArrayList<Integer>(0);
+		private final List<Integer> prefix = new ArrayList<Integer>(0);
+
+		Node(String label) {
+			this.label = label;
+		}
+
+		Node child(String label) {
+			Node child = children.get(label);
+			if (child == null) {
+				child = new Node(label);
+				children.put(label, child);
+			}
+			return child;
+		}
+
+		int count() {
+			int count = 1;
+			for (Node child : children.values()) {
+				count += child.count();
+			}
+			return count;
+		}
+
+		int chars() {
+			int chars = label.length();
+			for (Node child : children.values()) {
+				chars += child.chars();
+			}
+			return chars;
+		}
+
+		int exactRules() {
+			int rules = exact.size();
+			for (Node child : children.values()) {
+				rules += child.exactRules();
+			}
+			return rules;
+		}
+
+		int prefixRules() {
+			int rules = prefix.size();
+			for (Node child : children.values()) {
+				rules += child.prefixRules();
+			}
+			return rules;
+		}
+	}
+}
@@ -0,0 +1,440 @@
+/*******************************************************************************
+ * Copyright 2012 Yonatan Graber
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.spicyurl;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Normalizes URLs into a canonical form (RFC 3986 section 6.2.2 and 6.2.3):
+ * <ul>
+ * <li>Scheme and host are lower cased</li>
+ * <li>IP hosts are canonicalized through {@link IpC14n}: IPv4 hosts in any
+ * dotted, octal or hex form become dotted decimal, IPv6 literals take their
+ * RFC 5952 form</li>
+ * <li>Default ports (http 80, https 443, ftp 21, ws 80, wss 443) are dropped,
+ * leading zeros of other ports are removed</li>
+ * <li>Percent-encoding of user info, path, query and fragment is normalized:
+ * escaped unreserved characters are decoded, and hex digits are upper
+ * cased</li>
+ * <li>Dot segments are removed from the path</li>
+ * </ul>
+ * All rules are applied in a single pass over the URL. Nothing is copied
+ * until the first character that actually changes, so an already canonical
+ * URL, which is the common case, costs one scan, and is returned as is. It
+ * allocates nothing but the small cursor of the pass, and an IPv6 literal
+ * host, which is parsed and formatted again to be compared with its
+ * canonical form.
+ * <p>
+ * Invalid URLs are never normalized, and are returned as is. Thread safe.
+ * <p>
+ * The same pass can feed a hash instead of building the canonical URL, for
+ * a stable fingerprint of it; see {@link #fingerprint(Url)}.
+ */
+public class UrlNormalizer {
+
+	private static final IpC14n IP_C14N = new IpC14n();
+
+	/**
+	 * @return the canonical form of the URL; the very same instance if it is
+	 *         already canonical or invalid
+	 */
+	public Url normalize(Url url) {
+		Preconditions.checkNotNull(url);
+		StringBuilder canonical = canonicalize(url);
+		return canonical == null ? url : new Url(canonical.toString());
+	}
+
+	/**
+	 * @return the canonical form of the URL as a string; the raw URL if it is
+	 *         already canonical or invalid
+	 */
+	public String toCanonicalString(Url url) {
+		Preconditions.checkNotNull(url);
+		StringBuilder canonical = canonicalize(url);
+		return canonical == null ? url.getRaw() : canonical.toString();
+	}
+
+	/**
+	 * @return <code>true</code> iff the URL is already in its canonical form
+	 *         (or invalid)
+	 */
+	public boolean isCanonical(Url url) {
+		return canonicalize(Preconditions.checkNotNull(url)) == null;
+	}
+
+	/**
+	 * A 64-bit fingerprint of the canonical form of the URL, for dedupe and
+	 * sharding. It is the first 64 bits of the MurmurHash3 (x64, 128-bit,
+	 * seed 0) of the UTF-8 bytes of {@link #toCanonicalString(Url)}, the same
+	 * as Guava's <code>Hashing.murmur3_128()</code> hash of it
+	 * <code>asLong()</code>. It is computed in the normalizing pass, without
+	 * building the canonical string.
+	 * <p>
+	 * The fingerprint only depends on the canonical string, so it is stable
+	 * across JVMs and may be stored, as long as the normalization rules stay
+	 * the same.
+	 */
+	public long fingerprint(Url url) {
+		return hash(Preconditions.checkNotNull(url)).h1();
+	}
+
+	/**
+	 * The full 128 bits of the hash {@link #fingerprint(Url)} takes its
+	 * first 64 bits of
+	 * 
+	 * @return the first and last 64 bits of the hash, which are the
+	 *         little-endian longs of Guava's <code>asBytes()</code>
+	 */
+	public long[] fingerprint128(Url url) {
+		Murmur3Hasher hasher = hash(Preconditions.checkNotNull(url));
+		return new long[] { hasher.h1(), hasher.h2() };
+	}
+
+	/**
+	 * @return the canonical URL, or <code>null</code> if it is the same as
+	 *         the raw URL
+	 */
+	private StringBuilder canonicalize(Url url) {
+		if (!url.isValid()) {
+			return null;
+		}
+		url = url.withCharOffsets();
+		Output out = new Output(url.getSource(), null);
+		canonicalize(url, out);
+		return out.sb;
+	}
+
+	private Murmur3Hasher hash(Url url) {
+		Murmur3Hasher hasher = new Murmur3Hasher();
+		if (!url.isValid()) {
+			String raw = url.getRaw();
+			return hasher.putChars(raw, 0, raw.length());
+		}
+		url = url.withCharOffsets();
+		canonicalize(url, new Output(url.getSource(), hasher));
+		return hasher;
+	}
+
+	private static void canonicalize(Url url, Output out) {
+		CharSequence raw = out.raw;
+		lowerCase(out, url.end(UrlParser.SCHEME));
+		int scheme = defaultPort(raw, url.end(UrlParser.SCHEME));
+		if (url.start(UrlParser.USERNAME) != -1) {
+			normalizePercentEncoding(out, url.start(UrlParser.USERNAME), url.end(UrlParser.USERNAME));
+		}
+		if (url.start(UrlParser.PASSWORD) != -1) {
+			normalizePercentEncoding(out, url.start(UrlParser.PASSWORD), url.end(UrlParser.PASSWORD));
+		}
+		normalizeHost(out, url.start(UrlParser.HOST), url.end(UrlParser.HOST));
+		if (url.start(UrlParser.PORT) != -1) {
+			normalizePort(out, url.start(UrlParser.PORT), url.end(UrlParser.PORT), url.getPort(), scheme);
+		}
+		if (url.start(UrlParser.PATH) != -1) {
+			normalizePath(out, url.start(UrlParser.PATH), url.end(UrlParser.PATH));
+		}
+		if (url.start(UrlParser.QUERY) != -1) {
+			normalizePercentEncoding(out, url.start(UrlParser.QUERY), url.end(UrlParser.QUERY));
+		}
+		if (url.start(UrlParser.FRAGMENT) != -1) {
+			normalizePercentEncoding(out, url.start(UrlParser.FRAGMENT), url.end(UrlParser.FRAGMENT));
+		}
+		out.keep(raw.length());
+	}
+
+	private static void lowerCase(Output out, int end) {
+		CharSequence raw = out.raw;
+		for (int i = out.pos; i < end; i++) {
+			out.append(i, toLowerCase(raw.charAt(i)));
+		}
+	}
+
+	private static void normalizeHost(Output out, int start, int end) {
+		CharSequence raw = out.raw;
+		out.keep(start);
+		if (raw.charAt(start) == '[') {
+			normalizeIpV6(out, start, end);
+			return;
+		}
+		long ip = IP_C14N.tryParseIpV4(raw, start, end);
+		if (ip >= 0) {
+			if (isDottedDecimal(raw, start, end, ip)) {
+				out.keep(end);
+				return;
+			}
+			StringBuilder sb = new StringBuilder(15);
+			IpC14n.appendIpV4(sb, ip);
+			out.replace(end, sb);
+			return;
+		}
+		lowerCase(out, end);
+	}
+
+	/**
+	 * @return <code>true</code> iff the host is already the dotted decimal
+	 *         form of <code>ip</code>
+	 */
+	private static boolean isDottedDecimal(CharSequence raw, int start, int end, long ip) {
+		int i = start;
+		for (int shift = 24; shift >= 0; shift -= 8) {
+			if (shift != 24 && (i == end || raw.charAt(i++) != '.')) {
+				return false;
+			}
+			int octet = (int) (ip >>> shift) & 0xff;
+			for (int unit = octet >= 100 ? 100 : octet >= 10 ? 10 : 1; unit > 0; unit /= 10) {
+				if (i == end || raw.charAt(i++) != '0' + octet / unit % 10) {
+					return false;
+				}
+			}
+		}
+		return i == end;
+	}
+
+	private static void normalizeIpV6(Output out, int start, int end) {
+		CharSequence raw = out.raw;
+		int zone = start + 1;
+		while (zone < end - 1 && raw.charAt(zone) != '%') {
+			zone++;
+		}
+		long[] address = new long[2];
+		IP_C14N.tryParseIpV6(raw, start + 1, end - 1, address);
+		StringBuilder sb = new StringBuilder(end - start);
+		sb.append('[');
+		IpC14n.appendIpV6(sb, address[0], address[1]);
+		sb.append(raw, zone, end);
+		out.replace(end, sb);
+	}
+
+	private static void normalizePort(Output out, int start, int end, int port, int defaultPort) {
+		if (port == defaultPort) {
+			// Drop the ':' as well
+			out.keep(start - 1);
+			out.drop(end);
+		} else if (out.raw.charAt(start) == '0') {
+			out.keep(start);
+			out.replace(end, String.valueOf(port));
+		}
+	}
+
+	/**
+	 * @return the default port of the scheme at the start of
+	 *         <code>raw</code>; -1 if it has none
+	 */
+	static int defaultPort(CharSequence raw, int schemeEnd) {
+		if (equalsIgnoreCase(raw, 0, schemeEnd, "http") || equalsIgnoreCase(raw, 0, schemeEnd, "ws")) {
+			return 80;
+		}
+		if (equalsIgnoreCase(raw, 0, schemeEnd, "https") || equalsIgnoreCase(raw, 0, schemeEnd, "wss")) {
+			return 443;
+		}
+		if (equalsIgnoreCase(raw, 0, schemeEnd, "ftp")) {
+			return 21;
+		}
+		return -1;
+	}
+
+	private static void normalizePath(Output out, int start, int end) {
+		CharSequence raw = out.raw;
+		if (!hasPercent(raw, start, end) && !PathCursor.hasDotSegments(raw, start, end)) {
+			out.keep(end);
+			return;
+		}
+		// Dot segments may only show up once escaped dots are decoded, so
+		// normalize the escaping first, then resolve the segments
+		Output escaped = new Output(raw, null);
+		escaped.pos = start - 1;
+		escaped.sb = new StringBuilder(end - start + 1);
+		escaped.keep(start);
+		normalizePercentEncoding(escaped, start, end);
+		StringBuilder path = new StringBuilder(end - start + 1);
+		PathCursor.removeDotSegments(escaped.sb, 0, escaped.sb.length(), path);
+		// The leading '/' is not part of the path
+		out.keep(start - 1);
+		out.replace(end, path);
+	}
+
+	private static void normalizePercentEncoding(Output out, int start, int end) {
+		CharSequence raw = out.raw;
+		out.keep(start);
+		for (int i = start; i < end; i++) {
+			char c = raw.charAt(i);
+			int hi, lo;
+			if (c != '%' || i + 2 >= end || (hi = PercentCodec.hexDigit(raw.charAt(i + 1))) == -1
+					|| (lo = PercentCodec.hexDigit(raw.charAt(i + 2))) == -1) {
+				// Not an escape, or a malformed one which is kept as is
+				out.append(i, c);
+				continue;
+			}
+			char decoded = (char) (hi << 4 | lo);
+			if (isUnreserved(decoded)) {
+				out.replace(i + 3, decoded);
+			} else {
+				out.append(i, '%');
+				out.append(i + 1, toUpperCase(raw.charAt(i + 1)));
+				out.append(i + 2, toUpperCase(raw.charAt(i + 2)));
+			}
+			i += 2;
+		}
+	}
+
+	private static boolean hasPercent(CharSequence s, int start, int end) {
+		for (int i = start; i < end; i++) {
+			if (s.charAt(i) == '%') {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isUnreserved(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-' || c == '.'
+				|| c == '_' || c == '~';
+	}
+
+	private static boolean equalsIgnoreCase(CharSequence s, int start, int end, String other) {
+		if (end - start != other.length()) {
+			return false;
+		}
+		for (int i = start; i < end; i++) {
+			if (toLowerCase(s.charAt(i)) != other.charAt(i - start)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static char toLowerCase(char c) {
+		return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+	}
+
+	private static char toUpperCase(char c) {
+		return c >= 'a' && c <= 'z' ? (char) (c - ('a' - 'A')) : c;
+	}
+
+	/**
+	 * Copy-on-first-difference output. As long as {@link #sb} is
+	 * <code>null</code>, the output so far is exactly the first {@link #pos}
+	 * chars of the raw URL, and nothing is copied. With a hasher, the output
+	 * is streamed into it instead, and never copied.
+	 */
+	private static final class Output {
+		private final CharSequence raw;
+		private final Murmur3Hasher hasher;
+		private StringBuilder sb;
+		private int pos;
+
+		Output(CharSequence raw, Murmur3Hasher hasher) {
+			this.raw = raw;
+			this.hasher = hasher;
+		}
+
+		/**
+		 * Keeps the raw chars up to <code>end</code> as they are
+		 */
+		void keep(int end) {
+			if (hasher != null) {
+				hasher.putChars(raw, pos, end);
+			} else if (sb != null) {
+				sb.append(raw, pos, end);
+			}
+			pos = end;
+		}
+
+		/**
+		 * Outputs <code>c</code> for the raw char at <code>index</code>
+		 */
+		void append(int index, char c) {
+			if (hasher != null) {
+				hasher.putChar(c);
+				pos = index + 1;
+				return;
+			}
+			if (sb == null) {
+				if (raw.charAt(index) == c) {
+					pos = index + 1;
+					return;
+				}
+				diverge();
+			}
+			sb.append(c);
+			pos = index + 1;
+		}
+
+		/**
+		 * Outputs <code>c</code> instead of the raw chars up to
+		 * <code>end</code>
+		 */
+		void replace(int end, char c) {
+			if (hasher != null) {
+				hasher.putChar(c);
+				pos = end;
+				return;
+			}
+			if (sb == null && (end - pos != 1 || raw.charAt(pos) != c)) {
+				diverge();
+			}
+			if (sb != null) {
+				sb.append(c);
+			}
+			pos = end;
+		}
+
+		/**
+		 * Outputs <code>text</code> instead of the raw chars up to
+		 * <code>end</code>
+		 */
+		void replace(int end, CharSequence text) {
+			if (hasher != null) {
+				hasher.putChars(text, 0, text.length());
+				pos = end;
+				return;
+			}
+			if (sb == null && !regionMatches(end, text)) {
+				diverge();
+			}
+			if (sb != null) {
+				sb.append(text);
+			}
+			pos = end;
+		}
+
+		/**
+		 * Drops the raw chars up to <code>end</code>
+		 */
+		void drop(int end) {
+			if (hasher == null && sb == null && end > pos) {
+				diverge();
+			}
+			pos = end;
+		}
+
+		private boolean regionMatches(int end, CharSequence text) {
+			if (end - pos != text.length()) {
+				return false;
+			}
+			for (int i = 0; i < text.length(); i++) {
+				if (raw.charAt(pos + i) != text.charAt(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private void diverge() {
+			sb = new StringBuilder(raw.length() + 16);
+			sb.append(raw, 0, pos);
+		}
+	}
+}
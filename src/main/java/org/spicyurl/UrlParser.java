@@ -15,145 +15,325 @@
  ******************************************************************************/
 package org.spicyurl;
 
-import org.apache.commons.lang3.CharUtils;
-import org.apache.commons.lang3.StringUtils;
+import java.util.Arrays;
 
+/**
+ * Single pass URL scanner. The raw URL is walked once, char by char, and the
+ * boundaries of every component are recorded as <code>int</code> offsets into
+ * a bounds table. No intermediate strings or arrays are created while
+ * scanning.
+ * <p>
+ * Bounds table layout: for component <code>c</code>,
+ * <code>bounds[2 * c]</code> is the start offset (inclusive) and
+ * <code>bounds[2 * c + 1]</code> the end offset (exclusive). A start offset of
+ * <code>-1</code> means the component is absent. The numeric port value is
+ * kept at <code>bounds[PORT_VALUE]</code> (<code>-1</code> if absent or
+ * invalid).
+ */
 class UrlParser {
-	/**
-	 * 
-	 */
-	private final static String SCHEME_SEP = "://";
+	private final static char SCHEME_SEP_CHAR = ':';
 	private final static char QUERY_SEP_CHAR = '?';
 	private final static char FRAGMENT_SEP_CHAR = '#';
 	private final static char PATH_SEP_CHAR = '/';
-	private final static String LOGIN_SEP = "@";
-	private final static String USER_PASS_SEP = ":";
-	private final static String PORT_SEP = ":";
+	private final static char LOGIN_SEP_CHAR = '@';
+	private final static char PORT_SEP_CHAR = ':';
+	private final static char IP_LITERAL_START_CHAR = '[';
+	private final static char IP_LITERAL_END_CHAR = ']';
 	final static int MIN_PORT_VALUE = 1;
 	final static int MAX_PORT_VALUE = 65535;
 
-	private final static String QUERY_SEP = "" + QUERY_SEP_CHAR;
-	private final static String PATH_SEP = "" + PATH_SEP_CHAR;
-	private final static String FRAGMENT_SEP = "" + FRAGMENT_SEP_CHAR;
+	final static int SCHEME = UrlComponent.SCHEME.ordinal();
+	final static int USERNAME = UrlComponent.USERNAME.ordinal();
+	final static int PASSWORD = UrlComponent.PASSWORD.ordinal();
+	final static int HOST = UrlComponent.HOST.ordinal();
+	final static int PORT = UrlComponent.PORT.ordinal();
+	final static int PATH = UrlComponent.PATH.ordinal();
+	final static int QUERY = UrlComponent.QUERY.ordinal();
+	final static int FRAGMENT = UrlComponent.FRAGMENT.ordinal();
+	final static int COMPONENTS = UrlComponent.values().length;
 
-	private final Url url;
+	final static int PORT_VALUE = COMPONENTS * 2;
+	final static int BOUNDS_LENGTH = PORT_VALUE + 1;
+
+	/*
+	 * Components of a URI reference, see parseReference
+	 */
+	final static int REF_SCHEME = 0;
+	final static int REF_AUTHORITY = 1;
+	final static int REF_PATH = 2;
+	final static int REF_QUERY = 3;
+	final static int REF_FRAGMENT = 4;
+	final static int REF_BOUNDS_LENGTH = 10;
 
-	protected UrlParser(Url url) {
-		this.url = url;
+	static String component(CharSequence raw, int[] bounds, int component) {
+		int start = bounds[component * 2];
+		if (start == -1) {
+			return null;
+		}
+		return substring(raw, start, bounds[component * 2 + 1]);
 	}
 
-	protected void parse() {
-		String[] stage0 = StringUtils.splitByWholeSeparatorPreserveAllTokens(url.getRaw(), SCHEME_SEP, 2);
+	/**
+	 * @return the chars of the URL between <code>start</code> (inclusive)
+	 *         and <code>end</code> (exclusive), decoded if the URL is bytes
+	 */
+	static String substring(CharSequence raw, int start, int end) {
+		if (raw instanceof ByteSequence) {
+			return ((ByteSequence) raw).substring(start, end);
+		}
+		return raw.subSequence(start, end).toString();
+	}
 
-		url.setScheme(stage0[0]);
-		if (stage0.length != 2) {
-			url.getValidationErrorsModifiable().add(UrlErrors.HOST_IS_MISSING);
-			return;
+	/**
+	 * Scans the given URL, recording component boundaries into
+	 * <code>bounds</code>.
+	 * 
+	 * @param raw
+	 *            - the URL to scan
+	 * @param bounds
+	 *            - bounds table of at least {@link #BOUNDS_LENGTH} ints, or
+	 *            <code>null</code> if only validation is required
+	 * @return the validation errors, as a bitmask of
+	 *         {@link UrlErrors#mask()}
+	 */
+	static int parse(CharSequence raw, int[] bounds) {
+		if (bounds != null) {
+			Arrays.fill(bounds, 0, BOUNDS_LENGTH, -1);
 		}
+		int len = raw.length();
+		int errors = 0;
 
-		// Check for first separator, to split host from path/query/fragment
-		int hostSeperatorIdx = StringUtils.indexOfAny(stage0[1], PATH_SEP, QUERY_SEP, FRAGMENT_SEP);
-		if (hostSeperatorIdx == -1) {
-			// Just host
-			parseLoginHostPort(stage0[1]);
+		int schemeEnd = indexOfSchemeSeparator(raw, len);
+		int scheme = schemeEnd == -1 ? len : schemeEnd;
+		if (scheme == 0) {
+			errors |= UrlErrors.SCHEME_IS_MISSING.mask();
 		} else {
-			parseLoginHostPort(StringUtils.substring(stage0[1], 0, hostSeperatorIdx));
-			parsePathQueryFregment(StringUtils.substring(stage0[1], hostSeperatorIdx));
+			record(bounds, SCHEME, 0, scheme);
+		}
+		if (schemeEnd == -1) {
+			return errors | UrlErrors.HOST_IS_MISSING.mask();
 		}
 
-	}
-
-	private void parseLoginHostPort(String loginHostPort) {
-		if (StringUtils.isEmpty(loginHostPort)) {
-			url.getValidationErrorsModifiable().add(UrlErrors.HOST_IS_MISSING);
-			return;
+		// Authority - remember the last '@', the first ':' overall (login) and
+		// the ':'s following the last '@' (port), ignoring those within an
+		// IPv6 literal host
+		int authStart = schemeEnd + 3;
+		int at = -1;
+		int firstColon = -1;
+		int portColon = -1;
+		int portColons = 0;
+		boolean inIpLiteral = false;
+		int i = authStart;
+		for (; i < len; i++) {
+			char c = raw.charAt(i);
+			if (c == PATH_SEP_CHAR || c == QUERY_SEP_CHAR || c == FRAGMENT_SEP_CHAR) {
+				break;
+			}
+			if (c == LOGIN_SEP_CHAR) {
+				at = i;
+				portColon = -1;
+				portColons = 0;
+				inIpLiteral = false;
+			} else if (c == PORT_SEP_CHAR) {
+				if (firstColon == -1) {
+					firstColon = i;
+				}
+				if (!inIpLiteral && portColons++ == 0) {
+					portColon = i;
+				}
+			} else if (c == IP_LITERAL_START_CHAR) {
+				inIpLiteral = i == authStart || i == at + 1;
+			} else if (c == IP_LITERAL_END_CHAR) {
+				inIpLiteral = false;
+			}
 		}
-		if (loginHostPort.contains(LOGIN_SEP)) {
-			parseLogin(StringUtils.substringBeforeLast(loginHostPort, LOGIN_SEP));
-			parseHostPort(StringUtils.substringAfterLast(loginHostPort, LOGIN_SEP));
+		int authEnd = i;
+
+		if (authStart == authEnd) {
+			errors |= UrlErrors.HOST_IS_MISSING.mask();
 		} else {
-			parseHostPort(loginHostPort);
+			int hostStart = authStart;
+			if (at != -1) {
+				if (firstColon != -1 && firstColon < at) {
+					record(bounds, USERNAME, authStart, firstColon);
+					record(bounds, PASSWORD, firstColon + 1, at);
+				} else {
+					record(bounds, USERNAME, authStart, at);
+				}
+				hostStart = at + 1;
+			}
+			errors |= parseHostPort(raw, hostStart, authEnd, portColon, portColons, bounds);
+		}
+
+		if (authEnd == len) {
+			return errors;
 		}
+		switch (raw.charAt(authEnd)) {
+		case PATH_SEP_CHAR:
+			int pathStart = authEnd + 1;
+			int j = pathStart;
+			while (j < len && raw.charAt(j) != QUERY_SEP_CHAR && raw.charAt(j) != FRAGMENT_SEP_CHAR) {
+				j++;
+			}
+			record(bounds, PATH, pathStart, j);
+			if (j < len) {
+				if (raw.charAt(j) == FRAGMENT_SEP_CHAR) {
+					record(bounds, FRAGMENT, j + 1, len);
+				} else {
+					parseQueryFragment(raw, j + 1, len, bounds);
+				}
+			}
+			break;
+		case QUERY_SEP_CHAR:
+			parseQueryFragment(raw, authEnd + 1, len, bounds);
+			break;
+		case FRAGMENT_SEP_CHAR:
+			record(bounds, FRAGMENT, authEnd + 1, len);
+			break;
+		}
+		return errors;
 	}
 
-	private void parseLogin(String login) {
-		if (StringUtils.contains(login, USER_PASS_SEP)) {
-			url.setUsername(StringUtils.substringBefore(login, USER_PASS_SEP));
-			url.setPassword(StringUtils.substringAfter(login, USER_PASS_SEP));
+	private static int parseHostPort(CharSequence raw, int start, int end, int portColon, int portColons,
+			int[] bounds) {
+		if (portColons > 1) {
+			return UrlErrors.INVALID_PORT_VALUE.mask();
+		}
+		int errors = 0;
+		int hostEnd = portColon == -1 ? end : portColon;
+		if (start == hostEnd) {
+			errors |= UrlErrors.HOST_IS_MISSING.mask();
 		} else {
-			url.setUsername(login);
+			record(bounds, HOST, start, hostEnd);
+			errors |= UrlValidator.validateHost(raw, start, hostEnd);
 		}
+		if (portColon != -1) {
+			record(bounds, PORT, portColon + 1, end);
+			int port = parsePort(raw, portColon + 1, end);
+			if (port == -1) {
+				errors |= UrlErrors.INVALID_PORT_VALUE.mask();
+			} else if (bounds != null) {
+				bounds[PORT_VALUE] = port;
+			}
+		}
+		return errors;
 	}
 
-	private void parseHostPort(String hostPort) {
-		String[] stage0 = StringUtils.splitPreserveAllTokens(hostPort, PORT_SEP);
-		if (stage0.length > 2) {
-			url.getValidationErrorsModifiable().add(UrlErrors.INVALID_PORT_VALUE);
-			return;
+	/**
+	 * @return the port value, or -1 if it is not a valid port
+	 */
+	private static int parsePort(CharSequence raw, int start, int end) {
+		if (start == end) {
+			return -1;
 		}
-		url.setHost(stage0[0]);
-		if (stage0.length == 2) {
-			parsePort(stage0[1]);
+		int port = 0;
+		for (int i = start; i < end; i++) {
+			char c = raw.charAt(i);
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+			port = port * 10 + (c - '0');
+			if (port > MAX_PORT_VALUE) {
+				return -1;
+			}
 		}
+		return port < MIN_PORT_VALUE ? -1 : port;
 	}
 
-	private void parsePort(String port) {
-		if (!StringUtils.isNumeric(port)) {
-			url.getValidationErrorsModifiable().add(UrlErrors.INVALID_PORT_VALUE);
-			return;
+	private static void parseQueryFragment(CharSequence raw, int start, int end, int[] bounds) {
+		int i = start;
+		while (i < end && raw.charAt(i) != FRAGMENT_SEP_CHAR) {
+			i++;
+		}
+		record(bounds, QUERY, start, i);
+		if (i < end) {
+			record(bounds, FRAGMENT, i + 1, end);
 		}
-		try {
-			url.setPort(Integer.parseInt(port));
-		} catch (NumberFormatException e) {
-			url.getValidationErrorsModifiable().add(UrlErrors.INVALID_PORT_VALUE);
-			return;
+	}
+
+	private static int indexOfSchemeSeparator(CharSequence raw, int len) {
+		for (int i = 0; i + 2 < len; i++) {
+			if (raw.charAt(i) == SCHEME_SEP_CHAR && raw.charAt(i + 1) == PATH_SEP_CHAR
+					&& raw.charAt(i + 2) == PATH_SEP_CHAR) {
+				return i;
+			}
 		}
+		return -1;
 	}
 
 	/**
+	 * Scans a URI reference (RFC 3986 section 4.1), either a URL or a
+	 * relative reference such as <code>../a?b</code>, <code>//host/path</code>
+	 * or <code>#top</code>, recording the bounds of its scheme, authority,
+	 * path, query and fragment by the <code>REF_</code> constants. Absent
+	 * components are -1. Unlike in a URL, the path keeps its leading '/', which
+	 * tells an absolute path from a relative one, and is always there, maybe
+	 * empty. The authority is not split; any string is a reference, so there
+	 * are no errors.
 	 * 
-	 * @param pathQueryFregment
-	 *            - first char should be the seperator (PATH '/', QUERY '?' or
-	 *            FRAGMENT '?')
+	 * @param bounds
+	 *            - bounds table of at least {@link #REF_BOUNDS_LENGTH} ints
 	 */
-	private void parsePathQueryFregment(String sepPathQueryFregment) {
-		char firstSeperator = CharUtils.toChar(sepPathQueryFregment);
-		String pathQueryFregment = StringUtils.substring(sepPathQueryFregment, 1);
-
-		switch (firstSeperator) {
-		case PATH_SEP_CHAR:
-			int secondSeperatorIdx = StringUtils.indexOfAny(pathQueryFregment, QUERY_SEP, FRAGMENT_SEP);
-			if (secondSeperatorIdx == -1) {
-				url.setPath(pathQueryFregment);
-			} else {
-				url.setPath(StringUtils.substring(pathQueryFregment, 0, secondSeperatorIdx));
-				if (pathQueryFregment.charAt(secondSeperatorIdx) == FRAGMENT_SEP_CHAR) {
-					url.setFragment(StringUtils.substring(pathQueryFregment, secondSeperatorIdx + 1));
-				} else {
-					parseQueryFregmant(StringUtils.substring(pathQueryFregment, secondSeperatorIdx + 1));
-				}
+	static void parseReference(CharSequence ref, int[] bounds) {
+		Arrays.fill(bounds, 0, REF_BOUNDS_LENGTH, -1);
+		int len = ref.length();
+		int i = 0;
+		int schemeEnd = indexOfReferenceSchemeEnd(ref, len);
+		if (schemeEnd != -1) {
+			record(bounds, REF_SCHEME, 0, schemeEnd);
+			i = schemeEnd + 1;
+		}
+		if (i + 1 < len && ref.charAt(i) == PATH_SEP_CHAR && ref.charAt(i + 1) == PATH_SEP_CHAR) {
+			int authorityStart = i + 2;
+			i = authorityStart;
+			while (i < len && ref.charAt(i) != PATH_SEP_CHAR && ref.charAt(i) != QUERY_SEP_CHAR
+					&& ref.charAt(i) != FRAGMENT_SEP_CHAR) {
+				i++;
 			}
-			break;
-		case QUERY_SEP_CHAR:
-			parseQueryFregmant(pathQueryFregment);
-			break;
-		case FRAGMENT_SEP_CHAR:
-			url.setFragment(pathQueryFregment);
-			break;
+			record(bounds, REF_AUTHORITY, authorityStart, i);
+		}
+		int pathStart = i;
+		while (i < len && ref.charAt(i) != QUERY_SEP_CHAR && ref.charAt(i) != FRAGMENT_SEP_CHAR) {
+			i++;
+		}
+		record(bounds, REF_PATH, pathStart, i);
+		if (i < len && ref.charAt(i) == QUERY_SEP_CHAR) {
+			int queryStart = i + 1;
+			i = queryStart;
+			while (i < len && ref.charAt(i) != FRAGMENT_SEP_CHAR) {
+				i++;
+			}
+			record(bounds, REF_QUERY, queryStart, i);
+		}
+		if (i < len) {
+			record(bounds, REF_FRAGMENT, i + 1, len);
 		}
 	}
 
-	private void parseQueryFregmant(String queryFragment) {
-		if (StringUtils.isEmpty(queryFragment)) {
-			url.setQuery(queryFragment);
-			return;
+	/**
+	 * @return the index of the ':' ending the scheme of a reference, or -1
+	 *         if it has none. A scheme is a letter followed by letters,
+	 *         digits, '+', '-' or '.'.
+	 */
+	private static int indexOfReferenceSchemeEnd(CharSequence ref, int len) {
+		for (int i = 0; i < len; i++) {
+			char c = ref.charAt(i);
+			if (c == SCHEME_SEP_CHAR) {
+				return i == 0 ? -1 : i;
+			}
+			boolean alpha = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+			if (!alpha && (i == 0 || !((c >= '0' && c <= '9') || c == '+' || c == '-' || c == '.'))) {
+				return -1;
+			}
 		}
+		return -1;
+	}
 
-		String[] parts = StringUtils.splitPreserveAllTokens(queryFragment, FRAGMENT_SEP, 2);
-		url.setQuery(parts[0]);
-		if (parts.length == 2) {
-			url.setFragment(parts[1]);
+	static void record(int[] bounds, int component, int start, int end) {
+		if (bounds != null) {
+			bounds[component * 2] = start;
+			bounds[component * 2 + 1] = end;
 		}
 	}
 
-}
\ No newline at end of file
+}
@@ -4,23 +4,37 @@ import org.apache.commons.lang3.StringUtils;
 
 public class UrlValidator {
 
-	// TODO implement validator properly
+	private static final IpC14n IP_C14N = new IpC14n();
 
+	/**
+	 * @return <code>true</code> iff the URL has a valid host. The URL itself
+	 *         is not changed; its host errors are already in
+	 *         {@link Url#getErrorMask()}.
+	 */
 	public static boolean validateHost(Url url) {
-		String host = url.getHost();
-		if (StringUtils.isEmpty(host)) {
-			url.getValidationErrorsModifiable().add(UrlErrors.HOST_IS_MISSING);
+		if (StringUtils.isEmpty(url.getHost())) {
 			return false;
 		}
-		if (StringUtils.startsWith(host, "[")) {
-			return validateIpV6(host);
-		}
+		return (url.getErrorMask() & UrlErrors.HOST_IS_INVALID.mask()) == 0;
+	}
 
-		return true;
+	/**
+	 * Validates the host between <code>start</code> (inclusive) and
+	 * <code>end</code> (exclusive). The host must not be empty.
+	 * 
+	 * @return the validation errors, as a bitmask of {@link UrlErrors#mask()}
+	 */
+	static int validateHost(CharSequence raw, int start, int end) {
+		if (raw.charAt(start) == '[') {
+			return validateIpV6(raw, start, end) ? 0 : UrlErrors.HOST_IS_INVALID.mask();
+		}
+		return 0;
 	}
 
-	private static boolean validateIpV6(String host) {
-		// TODO
-		return false;
+	private static boolean validateIpV6(CharSequence raw, int start, int end) {
+		if (raw.charAt(end - 1) != ']') {
+			return false;
+		}
+		return IP_C14N.tryParseIpV6(raw, start + 1, end - 1, null);
 	}
 }
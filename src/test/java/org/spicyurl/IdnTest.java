@@ -0,0 +1,61 @@
+package org.spicyurl;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.net.IDN;
+
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+
+@Test
+public class IdnTest {
+
+	private static final String[] HOSTS = { "www.bücher.de", "BÜCHER.de", "食狮.公司.cn", "www.xn--85x722f.com.cn",
+			"faß.de", "ΣΊΣΥΦΟΣ.gr", "ＥＸＡＭＰＬＥ.com", "пример.испытание", "例え。テスト", "mañana.com.",
+			"münchen.xn--mnchen-3ya.de" };
+
+	public void shouldReturnAsciiHostsUntouched() {
+		for (String host : new String[] { "www.example.com", "xn--bcher-kva.de", "WWW.Example.COM", "1.2.3.4", "[::1]",
+				"" }) {
+			assertThat(Idn.toAscii(host), sameInstance(host));
+		}
+		String host = "www.example.com";
+		assertThat(Idn.toUnicode(host), sameInstance(host));
+	}
+
+	public void shouldConvertLikeJavaNetIdn() {
+		for (String host : HOSTS) {
+			String ascii = Idn.toAscii(host);
+			assertThat("toAscii " + host, ascii, equalTo(IDN.toASCII(host)));
+			assertThat("toUnicode " + ascii, Idn.toUnicode(ascii), equalTo(IDN.toUnicode(ascii)));
+		}
+	}
+
+	public void shouldKeepUndecodableLabels() {
+		assertThat(Idn.toUnicode("xn--bcher-kv.xn--mnchen-3ya.de"), equalTo("xn--bcher-kv.münchen.de"));
+		// Punycode keeps the case of ASCII chars
+		assertThat(Idn.toUnicode("XN--BCHER-KVA.de"), equalTo("BüCHER.de"));
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void shouldRejectLongLabels() {
+		Idn.toAscii(Strings.repeat("ü", 64) + ".de");
+	}
+
+	public void shouldConvertUrlHosts() {
+		Url url = new Url("http://user@www.bücher.de:8080/a");
+		assertThat(url.getAsciiHost(), equalTo("www.xn--bcher-kva.de"));
+		assertThat(url.getUnicodeHost(), sameInstance(url.getHost()));
+		url = new Url("http://www.xn--bcher-kva.de/a");
+		assertThat(url.getAsciiHost(), sameInstance(url.getHost()));
+		assertThat(url.getUnicodeHost(), equalTo("www.bücher.de"));
+		byte[] bytes = "http://食狮.公司.cn/".getBytes(Charsets.UTF_8);
+		assertThat(new Url(bytes, 0, bytes.length).getAsciiHost(), equalTo("xn--85x722f.xn--55qx5d.cn"));
+		assertThat(new Url("file:///a").getAsciiHost(), nullValue());
+	}
+}
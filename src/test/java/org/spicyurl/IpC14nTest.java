@@ -111,6 +111,91 @@ public class IpC14nTest {
 		// }
 	}
 
+	public void shouldParseIpV4ToIntWithoutExceptions() throws IOException {
+		IpC14n c14n = new IpC14n();
+
+		Properties p = new Properties();
+		p.load(this.getClass().getResourceAsStream("ip.c14n.cannonicalization.properties"));
+
+		for (Entry<Object, Object> entry : p.entrySet()) {
+			String in = entry.getKey().toString();
+			String exp = entry.getValue().toString();
+			long result = c14n.tryParseIpV4(in);
+			if (StringUtils.isBlank(exp)) {
+				assertThat("Should reject " + in, result < 0, is(true));
+				continue;
+			}
+			long packed = 0;
+			for (String octat : StringUtils.split(exp, '.')) {
+				packed = (packed << 8) | Integer.parseInt(octat);
+			}
+			assertThat("Assert correct answer for " + in, result, is(packed));
+			assertThat("Assert correct packed int for " + in, c14n.c14nIpV4ToInt(in), is((int) packed));
+		}
+	}
+
+	public void shouldParseIpV4Range() {
+		IpC14n c14n = new IpC14n();
+		assertThat(c14n.tryParseIpV4("http://10.0.0.1/", 7, 15), is(0x0a000001L));
+		assertThat(c14n.tryParseIpV4("1..2") < 0, is(true));
+		assertThat(c14n.tryParseIpV4("1.2.3.") < 0, is(true));
+	}
+
+	@Test(expectedExceptions = MalformedIpException.class)
+	public void shouldThrowOnBadIpV4ToInt() {
+		new IpC14n().c14nIpV4ToInt("1.2.3.com");
+	}
+
+	public void shouldParseIpV6Properly() {
+		IpC14n c14n = new IpC14n();
+		//@formatter:off
+		String[][] tests = new String[][] {
+			{ "::", "0:0:0:0:0:0:0:0" },
+			{ "::1", "0:0:0:0:0:0:0:1" },
+			{ "1::", "1:0:0:0:0:0:0:0" },
+			{ "2001:db8::7", "2001:db8:0:0:0:0:0:7" },
+			{ "2001:DB8:0:0:8:800:200C:417A", "2001:db8:0:0:8:800:200c:417a" },
+			{ "1:2:3:4:5:6:7::", "1:2:3:4:5:6:7:0" },
+			{ "::2:3:4:5:6:7:8", "0:2:3:4:5:6:7:8" },
+			{ "1:2:3::6:7:8", "1:2:3:0:0:6:7:8" },
+			{ "::ffff:192.168.1.10", "0:0:0:0:0:ffff:c0a8:10a" },
+			{ "1:2:3:4:5:6:1.2.3.4", "1:2:3:4:5:6:102:304" },
+			{ "fe80::1%eth0", "fe80:0:0:0:0:0:0:1" },
+			{ "fe80::1%25eth0", "fe80:0:0:0:0:0:0:1" },
+		};
+		//@formatter:on
+		for (String[] test : tests) {
+			byte[] expected = new byte[16];
+			String[] groups = StringUtils.split(test[1], ':');
+			for (int i = 0; i < 8; i++) {
+				int group = Integer.parseInt(groups[i], 16);
+				expected[i * 2] = (byte) (group >> 8);
+				expected[i * 2 + 1] = (byte) group;
+			}
+			assertThat("Assert correct answer for " + test[0], c14n.c14nIpV6(test[0]), is(expected));
+		}
+	}
+
+	public void shouldFailOnIpV6Gracefully() {
+		IpC14n c14n = new IpC14n();
+		//@formatter:off
+		String[] tests = new String[] {
+			"", ":", ":::", "1", "1:2", ":1::", "1::2::3", "1:2:3:4:5:6:7:8:9", "1:2:3:4:5:6:7", "1:2:3:4:5:6:7:8::",
+			"12345::", "g::", "1::2:", "::1%", "::1.2.3", "::1.2.3.4.5", "::01.2.3.4", "::256.2.3.4", "1.2.3.4::",
+			"1:2:3:4:5:6:7:1.2.3.4", "::1.2.3.4:5", "[::1]",
+		};
+		//@formatter:on
+		for (String test : tests) {
+			assertThat("Should reject " + test, c14n.tryParseIpV6(test, 0, test.length(), null), is(false));
+			try {
+				c14n.c14nIpV6(test);
+				Assert.fail("Should throw MalformedIpException on " + test);
+			} catch (MalformedIpException e) {
+
+			}
+		}
+	}
+
 	public void t() {
 		IpC14n c = new IpC14n();
 		c.c14nIpV4("3279880203");
@@ -0,0 +1,103 @@
+package org.spicyurl;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+
+@Test
+public class IpRangeSetTest {
+
+	private static final IpC14n IP_C14N = new IpC14n();
+
+	private final IpRangeSet set = IpRangeSet.of(Arrays.asList("10.0.0.0/8", "192.168.1.0/24", "192.168.2.0/24",
+			"172.16.5.7", "255.255.255.0/24", "1.2.3.4/30"));
+
+	public void shouldMatchAddresses() {
+		//@formatter:off
+		Object[][] tests = new Object[][] {
+			{ "10.0.0.0", true },
+			{ "10.255.255.255", true },
+			{ "11.0.0.0", false },
+			{ "9.255.255.255", false },
+			{ "192.168.1.77", true },
+			{ "192.168.2.255", true },
+			{ "192.168.3.0", false },
+			{ "192.168.0.255", false },
+			{ "172.16.5.7", true },
+			{ "172.16.5.8", false },
+			{ "255.255.255.255", true },
+			{ "255.255.254.255", false },
+			{ "1.2.3.7", true },
+			{ "1.2.3.8", false },
+			{ "0.0.0.0", false },
+			{ "012.1.1.1", true },
+			{ "0xc0a80101", true },
+			{ "www.example.com", false },
+			{ "", false },
+		};
+		//@formatter:on
+		for (Object[] test : tests) {
+			String ip = (String) test[0];
+			assertThat("Contains " + ip, set.contains(ip), equalTo(test[1]));
+			long address = IP_C14N.tryParseIpV4(ip);
+			if (address >= 0) {
+				assertThat("Contains " + ip, set.contains((int) address), equalTo(test[1]));
+			}
+		}
+	}
+
+	public void shouldMergeRanges() {
+		// The two /24s are adjacent, and 1.2.3.4/30 covers 1.2.3.4 to 1.2.3.7
+		assertThat(set.size(), equalTo(5));
+		IpRangeSet overlapping = IpRangeSet.of(Arrays.asList("10.1.0.0/16", "10.0.0.0/8", "10.1.2.3", "11.0.0.0/8"));
+		assertThat(overlapping.size(), equalTo(1));
+		assertThat(overlapping.contains("11.255.0.1"), equalTo(true));
+		assertThat(overlapping.contains("12.0.0.0"), equalTo(false));
+	}
+
+	public void shouldMatchEverythingOrNothing() {
+		IpRangeSet all = IpRangeSet.of(Collections.singletonList("0.0.0.0/0"));
+		assertThat(all.contains("0.0.0.0"), equalTo(true));
+		assertThat(all.contains("255.255.255.255"), equalTo(true));
+		IpRangeSet none = IpRangeSet.of(Collections.<String> emptyList());
+		assertThat(none.size(), equalTo(0));
+		assertThat(none.contains(0), equalTo(false));
+	}
+
+	public void shouldMatchUrlHosts() {
+		assertThat(set.contains(new Url("http://user@10.1.2.3:8080/a")), equalTo(true));
+		assertThat(set.contains(new Url("http://8.8.8.8/")), equalTo(false));
+		assertThat(set.contains(new Url("http://example.com/")), equalTo(false));
+		assertThat(set.contains(new Url("http://[::1]/")), equalTo(false));
+		assertThat(set.contains(new Url("file:///etc/hosts")), equalTo(false));
+		byte[] bytes = "https://192.168.2.1/ü".getBytes(Charsets.UTF_8);
+		assertThat(set.contains(new Url(bytes, 0, bytes.length)), equalTo(true));
+	}
+
+	public void shouldLoadLists() throws IOException {
+		IpRangeSet loaded = IpRangeSet.load(new StringReader("# Block list\n\n10.0.0.0/8  # private\n 8.8.8.8 \n"));
+		assertThat(loaded.size(), equalTo(2));
+		assertThat(loaded.contains("8.8.8.8"), equalTo(true));
+		assertThat(loaded.contains("10.20.30.40"), equalTo(true));
+	}
+
+	public void shouldRejectMalformedBlocks() {
+		for (String block : new String[] { "10.0.0.0/33", "10.0.0.0/", "10.0.0.0/8x", "10.0.0.0/008", "1.2.3.4.5/8",
+				"example.com", "/8" }) {
+			try {
+				IpRangeSet.of(Collections.singletonList(block));
+				throw new AssertionError("Should throw MalformedIpException on " + block);
+			} catch (MalformedIpException e) {
+				// expected
+			}
+		}
+	}
+}
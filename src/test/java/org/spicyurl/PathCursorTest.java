@@ -0,0 +1,123 @@
+package org.spicyurl;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+
+@Test
+public class PathCursorTest {
+
+	private List<String> segments(PathCursor cursor) {
+		List<String> segments = new ArrayList<String>();
+		while (cursor.next()) {
+			assertThat(cursor.length(), equalTo(cursor.getEnd() - cursor.getStart()));
+			segments.add(cursor.getSegment());
+		}
+		assertThat(cursor.next(), is(false));
+		return segments;
+	}
+
+	public void shouldIterateSegments() {
+		//@formatter:off
+		Object[][] tests = new Object[][] {
+			{ "http://abc.com", Arrays.asList() },
+			{ "http://abc.com?q", Arrays.asList() },
+			{ "http://abc.com/", Arrays.asList("") },
+			{ "http://abc.com/a", Arrays.asList("a") },
+			{ "http://abc.com/a/b/", Arrays.asList("a", "b", "") },
+			{ "http://abc.com/a//b?q/r#s/t", Arrays.asList("a", "", "b") },
+			{ "http://abc.com/./a/../b%20c", Arrays.asList(".", "a", "..", "b%20c") },
+		};
+		//@formatter:on
+		for (Object[] test : tests) {
+			Url url = new Url((String) test[0]);
+			assertThat("Segments of " + test[0], segments(url.getPathCursor()), equalTo(test[1]));
+		}
+	}
+
+	public void shouldCompareSegmentsInPlace() {
+		String raw = "http://abc.com/api/v1/users%2Fx";
+		PathCursor cursor = new Url(raw).getPathCursor();
+		assertThat(cursor.next(), is(true));
+		assertThat(cursor.segmentEquals("api"), is(true));
+		assertThat(cursor.segmentEquals("ap"), is(false));
+		assertThat(raw.substring(cursor.getStart(), cursor.getEnd()), equalTo("api"));
+		cursor.next();
+		assertThat(cursor.segmentEquals("v1"), is(true));
+		assertThat(cursor.isDotSegment(), is(false));
+		cursor.next();
+		assertThat(cursor.segmentEquals("users%2Fx"), is(true));
+		assertThat(cursor.getDecodedSegment(), equalTo("users/x"));
+	}
+
+	public void shouldBeReusable() {
+		PathCursor cursor = new PathCursor();
+		assertThat(cursor.next(), is(false));
+		assertThat(segments(cursor.reset(new Url("http://abc.com/a/b"))), equalTo(Arrays.asList("a", "b")));
+		assertThat(segments(cursor.reset(new Url("http://abc.com/c"))), equalTo(Arrays.asList("c")));
+		assertThat(segments(cursor.reset("x/y/")), equalTo(Arrays.asList("x", "y", "")));
+		assertThat(segments(cursor.reset("")), equalTo(Arrays.asList("")));
+	}
+
+	public void shouldIterateBytes() {
+		byte[] bytes = "http://abc.com/api/ש%41".getBytes(Charsets.UTF_8);
+		PathCursor cursor = new Url(bytes, 0, bytes.length).getPathCursor();
+		cursor.next();
+		assertThat(cursor.segmentEquals("api"), is(true));
+		cursor.next();
+		assertThat(cursor.getSegment(), equalTo("ש%41"));
+		assertThat(cursor.getDecodedSegment(), equalTo("שA"));
+	}
+
+	public void shouldRemoveDotSegments() {
+		//@formatter:off
+		String[][] tests = new String[][] {
+			{ "/", "/" },
+			{ "/a/b/c/./../../g", "/a/g" },
+			{ "/mid/content=5/../6", "/mid/6" },
+			{ "/a//b/../c", "/a//c" },
+			{ "/.", "/" },
+			{ "/..", "/" },
+			{ "/a/.", "/a/" },
+			{ "/a/..b/.c", "/a/..b/.c" },
+		};
+		//@formatter:on
+		for (String[] test : tests) {
+			StringBuilder sb = new StringBuilder("x");
+			PathCursor.removeDotSegments(test[0], 0, test[0].length(), sb);
+			assertThat("Dot segments of " + test[0], sb.toString(), equalTo("x" + test[1]));
+		}
+	}
+
+	public void shouldAppendResolvedPath() {
+		StringBuilder sb = new StringBuilder();
+		//@formatter:off
+		String[][] tests = new String[][] {
+			{ "http://abc.com", "" },
+			{ "http://abc.com/", "" },
+			{ "http://abc.com/a/./b/../c?x/../y", "a/c" },
+			{ "http://abc.com/../a/", "a/" },
+			{ "http://abc.com/a/b/..", "a/" },
+		};
+		//@formatter:on
+		for (String[] test : tests) {
+			sb.setLength(0);
+			new Url(test[0]).appendResolvedPath(sb);
+			assertThat("Resolved path of " + test[0], sb.toString(), equalTo(test[1]));
+		}
+		sb.setLength(0);
+		byte[] bytes = "http://abc.com/ש/../א/.".getBytes(Charsets.UTF_8);
+		new Url(bytes, 0, bytes.length).appendResolvedPath(sb);
+		assertThat(sb.toString(), equalTo("א/"));
+		PathCursor cursor = new PathCursor().reset(sb);
+		assertThat(segments(cursor), equalTo(Arrays.asList("א", "")));
+	}
+}
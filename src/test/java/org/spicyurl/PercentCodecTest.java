@@ -0,0 +1,110 @@
+package org.spicyurl;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.net.URLDecoder;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+
+@Test
+public class PercentCodecTest {
+
+	public void shouldReturnUnchangedInput() {
+		String plain = "a-b.c_d~e!$&'()*+,;=:@";
+		assertThat(PercentCodec.PATH_SEGMENT.encode(plain), sameInstance(plain));
+		assertThat(PercentCodec.PATH_SEGMENT.decode(plain), sameInstance(plain));
+		String path = "a/b/c";
+		assertThat(PercentCodec.PATH.encode(path), sameInstance(path));
+		String query = "a=1&b=/x?y";
+		assertThat(PercentCodec.QUERY.encode(query), sameInstance(query));
+		assertThat(PercentCodec.FRAGMENT.encode(query), sameInstance(query));
+	}
+
+	public void shouldEncodeByComponent() {
+		//@formatter:off
+		Object[][] tests = new Object[][] {
+			{ PercentCodec.PATH_SEGMENT, "a/b c", "a%2Fb%20c" },
+			{ PercentCodec.PATH, "a/b c?d#e", "a/b%20c%3Fd%23e" },
+			{ PercentCodec.PATH, "100%", "100%25" },
+			{ PercentCodec.QUERY, "a=b c&d/e?f#g", "a=b%20c&d/e?f%23g" },
+			{ PercentCodec.QUERY_PARAMETER, "a=b c&d+e", "a%3Db+c%26d%2Be" },
+			{ PercentCodec.FRAGMENT, "top of#page", "top%20of%23page" },
+			{ PercentCodec.PATH, "café", "caf%C3%A9" },
+			{ PercentCodec.PATH, "日本", "%E6%97%A5%E6%9C%AC" },
+			{ PercentCodec.PATH, "😀", "%F0%9F%98%80" },
+			{ PercentCodec.PATH, "a\ud83d", "a%EF%BF%BD" },
+		};
+		//@formatter:on
+		for (Object[] test : tests) {
+			PercentCodec codec = (PercentCodec) test[0];
+			assertThat("Encoding " + test[1], codec.encode((String) test[1]), equalTo(test[2]));
+		}
+	}
+
+	public void shouldDecode() {
+		//@formatter:off
+		Object[][] tests = new Object[][] {
+			{ PercentCodec.PATH, "a%2Fb%20c", "a/b c" },
+			{ PercentCodec.PATH, "a+b", "a+b" },
+			{ PercentCodec.QUERY_PARAMETER, "a+b", "a b" },
+			{ PercentCodec.PATH, "caf%c3%a9", "café" },
+			{ PercentCodec.PATH, "%F0%9F%98%80", "😀" },
+			{ PercentCodec.PATH, "100%", "100%" },
+			{ PercentCodec.PATH, "%zz%4", "%zz%4" },
+			{ PercentCodec.PATH, "%１２%ＡＢ", "%１２%ＡＢ" },
+			{ PercentCodec.PATH, "%٤١", "%٤١" },
+			{ PercentCodec.PATH, "日本%20", "日本 " },
+		};
+		//@formatter:on
+		for (Object[] test : tests) {
+			PercentCodec codec = (PercentCodec) test[0];
+			assertThat("Decoding " + test[1], codec.decode((String) test[1]), equalTo(test[2]));
+		}
+	}
+
+	public void shouldRoundTrip() throws Exception {
+		String s = "key=välue & more/日本?#😀+%";
+		for (PercentCodec codec : new PercentCodec[] { PercentCodec.PATH_SEGMENT, PercentCodec.PATH,
+				PercentCodec.QUERY, PercentCodec.QUERY_PARAMETER, PercentCodec.FRAGMENT }) {
+			assertThat(codec.decode(codec.encode(s)), equalTo(s));
+		}
+		assertThat(URLDecoder.decode(PercentCodec.QUERY_PARAMETER.encode(s), "UTF-8"), equalTo(s));
+	}
+
+	public void shouldWriteIntoBuffers() {
+		StringBuilder sb = new StringBuilder("x");
+		PercentCodec.PATH.encode("-a b c-", 1, 6, sb);
+		assertThat(sb.toString(), equalTo("xa%20b%20c"));
+		sb.setLength(0);
+		PercentCodec.PATH.decode("-a%20b-", 1, 6, sb);
+		assertThat(sb.toString(), equalTo("a b"));
+
+		CharBuffer buffer = CharBuffer.allocate(16);
+		PercentCodec.QUERY_PARAMETER.encode("a b&c", 0, 5, buffer);
+		buffer.flip();
+		assertThat(buffer.toString(), equalTo("a+b%26c"));
+		buffer.clear();
+		PercentCodec.QUERY_PARAMETER.decode("a+b%26c", 0, 7, buffer);
+		buffer.flip();
+		assertThat(buffer.toString(), equalTo("a b&c"));
+	}
+
+	@Test(expectedExceptions = BufferOverflowException.class)
+	public void shouldFailOnFullBuffer() {
+		PercentCodec.PATH.encode("日本", 0, 2, CharBuffer.allocate(10));
+	}
+
+	public void shouldDecodeUtf8Bytes() {
+		byte[] bytes = "ש%D7%90+x".getBytes(Charsets.UTF_8);
+		ByteSequence source = new ByteSequence(ByteBuffer.wrap(bytes), 0, bytes.length);
+		assertThat(PercentCodec.QUERY_PARAMETER.decode(source, 0, bytes.length), equalTo("שא x"));
+		assertThat(PercentCodec.PATH.decode(source, 0, bytes.length), equalTo("שא+x"));
+	}
+}
@@ -0,0 +1,138 @@
+package org.spicyurl;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+
+@Test
+public class PublicSuffixListTest {
+
+	private PublicSuffixList psl;
+
+	private PublicSuffixList load(boolean privateDomains) throws IOException {
+		Reader reader = new InputStreamReader(getClass().getResourceAsStream("public_suffix_list.dat"), Charsets.UTF_8);
+		try {
+			return PublicSuffixList.load(reader, privateDomains);
+		} finally {
+			reader.close();
+		}
+	}
+
+	@BeforeClass
+	public void loadList() throws IOException {
+		psl = load(true);
+	}
+
+	public void shouldFindRegistrableDomains() {
+		// From the list's own test vectors, https://publicsuffix.org/list/
+		//@formatter:off
+		String[][] tests = new String[][] {
+			{ "COM", null },
+			{ "example.COM", "example.COM" },
+			{ "WwW.example.COM", "example.COM" },
+			{ ".com", null },
+			{ ".example", null },
+			{ ".example.com", null },
+			{ "example", null },
+			{ "example.example", "example.example" },
+			{ "b.example.example", "example.example" },
+			{ "a.b.example.example", "example.example" },
+			{ "biz", null },
+			{ "domain.biz", "domain.biz" },
+			{ "b.domain.biz", "domain.biz" },
+			{ "a.b.example.com", "example.com" },
+			{ "ac.jp", null },
+			{ "www.test.ac.jp", "test.ac.jp" },
+			{ "kyoto.jp", null },
+			{ "test.kyoto.jp", "test.kyoto.jp" },
+			{ "ide.kyoto.jp", null },
+			{ "a.b.ide.kyoto.jp", "b.ide.kyoto.jp" },
+			{ "c.kobe.jp", null },
+			{ "a.b.c.kobe.jp", "b.c.kobe.jp" },
+			{ "city.kobe.jp", "city.kobe.jp" },
+			{ "www.city.kobe.jp", "city.kobe.jp" },
+			{ "ck", null },
+			{ "test.ck", null },
+			{ "a.b.test.ck", "b.test.ck" },
+			{ "www.ck", "www.ck" },
+			{ "www.www.ck", "www.ck" },
+			{ "us", null },
+			{ "www.test.us", "test.us" },
+			{ "ak.us", null },
+			{ "www.test.ak.us", "test.ak.us" },
+			{ "食狮.com.cn", "食狮.com.cn" },
+			{ "www.食狮.公司.cn", "食狮.公司.cn" },
+			{ "公司.cn", null },
+			{ "www.xn--85x722f.xn--55qx5d.cn", "xn--85x722f.xn--55qx5d.cn" },
+			{ "xn--55qx5d.cn", null },
+			{ "abc.blogspot.com", "abc.blogspot.com" },
+			{ "www.example.com.", "example.com" },
+			{ "co..uk", null },
+			{ "1.2.3.4", null },
+			{ "0x7f.1", null },
+			{ "[::1]", null },
+			{ "123.example", "123.example" },
+		};
+		//@formatter:on
+		for (String[] test : tests) {
+			assertThat("Registrable domain of " + test[0], psl.getRegistrableDomain(test[0]), equalTo(test[1]));
+		}
+	}
+
+	public void shouldFindPublicSuffixes() {
+		//@formatter:off
+		String[][] tests = new String[][] {
+			{ "www.abc.co.uk", "co.uk" },
+			{ "co.uk", "co.uk" },
+			{ "abc.example", "example" },
+			{ "a.b.c.kobe.jp", "c.kobe.jp" },
+			{ "www.city.kobe.jp", "kobe.jp" },
+			{ "1.2.3.4", null },
+		};
+		//@formatter:on
+		for (String[] test : tests) {
+			assertThat("Public suffix of " + test[0], psl.getPublicSuffix(test[0]), equalTo(test[1]));
+		}
+	}
+
+	public void shouldReturnOffsets() {
+		String url = "http://www.abc.co.uk/";
+		assertThat(psl.publicSuffixStart(url, 7, 20), equalTo(15));
+		assertThat(psl.registrableDomainStart(url, 7, 20), equalTo(11));
+		assertThat(psl.registrableDomainStart(url, 15, 20), equalTo(-1));
+	}
+
+	public void shouldSkipPrivateDomains() throws IOException {
+		PublicSuffixList icann = load(false);
+		assertThat(icann.getRegistrableDomain("abc.blogspot.com"), equalTo("blogspot.com"));
+		assertThat(icann.size() < psl.size(), equalTo(true));
+	}
+
+	public void shouldFindRegistrableDomainOfUrls() {
+		assertThat(psl.getRegistrableDomain(new Url("http://user@www.abc.co.uk:8080/x")), equalTo("abc.co.uk"));
+		assertThat(psl.getRegistrableDomain(new Url("http://co.uk/")), nullValue());
+		assertThat(psl.getRegistrableDomain(new Url("http:/abc.com/")), nullValue());
+		byte[] bytes = "https://a.b.example.com./".getBytes(Charsets.UTF_8);
+		assertThat(psl.getRegistrableDomain(new Url(bytes, 0, bytes.length)), equalTo("example.com"));
+		bytes = "http://www.食狮.公司.cn/路径".getBytes(Charsets.UTF_8);
+		assertThat(psl.getRegistrableDomain(new Url(bytes, 0, bytes.length)), equalTo("食狮.公司.cn"));
+		assertThat(psl.getRegistrableDomain(new Url("http://www.食狮.公司.cn/")), equalTo("食狮.公司.cn"));
+	}
+
+	public void shouldIgnoreCommentsAndBadRules() throws IOException {
+		PublicSuffixList list = PublicSuffixList.load(new StringReader(
+				"// comment\n\ncom   trailing text\na.*.com\n..bad\n"), true);
+		assertThat(list.size(), equalTo(1));
+		assertThat(list.getRegistrableDomain("x.y.com"), equalTo("y.com"));
+	}
+}
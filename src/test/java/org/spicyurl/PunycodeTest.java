@@ -0,0 +1,60 @@
+package org.spicyurl;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.testng.annotations.Test;
+
+@Test
+public class PunycodeTest {
+
+	public void shouldEncodeAndDecodeSamples() {
+		// Mostly from RFC 3492 section 7.1
+		//@formatter:off
+		String[][] tests = new String[][] {
+			{ "bücher", "bcher-kva" },
+			{ "münchen", "mnchen-3ya" },
+			{ "食狮", "85x722f" },
+			{ "ليهمابتكلموشعربي؟",
+				"egbpdaj6bu4bxfgehfvwxn" },
+			{ "他们为什么不说中文", "ihqwcrb4cv8a8dqg056pqjye" },
+			{ "PorquénopuedensimplementehablarenEspañol", "PorqunopuedensimplementehablarenEspaol-fmd56a" },
+			{ "3年B組金八先生", "3B-ww4c5e180e575a65lsy2b" },
+			{ "安室奈美恵-with-SUPER-MONKEYS", "-with-SUPER-MONKEYS-pc58ag80a8qai00g7n9n" },
+			{ "-> $1.00 <-", "-> $1.00 <--" },
+			{ "", "" },
+		};
+		//@formatter:on
+		for (String[] test : tests) {
+			assertThat("Encoding " + test[0], Punycode.encode(test[0]), equalTo(test[1]));
+			assertThat("Decoding " + test[1], Punycode.decode(test[1]), equalTo(test[0]));
+		}
+	}
+
+	public void shouldRoundTripSurrogatePairs() {
+		String label = "a😀b😁";
+		assertThat(Punycode.decode(Punycode.encode(label)), equalTo(label));
+	}
+
+	public void shouldWorkOnRanges() {
+		StringBuilder sb = new StringBuilder("xn--");
+		assertThat(Punycode.encode("www.bücher.de", 4, 10, sb), equalTo(true));
+		assertThat(sb.toString(), equalTo("xn--bcher-kva"));
+		sb.setLength(0);
+		assertThat(Punycode.decode("xn--bcher-kva.de", 4, 13, sb), equalTo(true));
+		assertThat(sb.toString(), equalTo("bücher"));
+	}
+
+	public void shouldRejectMalformedPunycode() {
+		StringBuilder sb = new StringBuilder("x");
+		for (String malformed : new String[] { "bcher-kv", "bcher-k!a", "bü-kva", "99999999999", "a-9" }) {
+			assertThat("Decoding " + malformed, Punycode.decode(malformed, 0, malformed.length(), sb), equalTo(false));
+			assertThat(sb.toString(), equalTo("x"));
+		}
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void shouldThrowOnMalformedPunycode() {
+		Punycode.decode("bcher-kv");
+	}
+}
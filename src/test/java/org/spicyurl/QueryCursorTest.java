@@ -0,0 +1,101 @@
+package org.spicyurl;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableListMultimap;
+
+@Test
+public class QueryCursorTest {
+
+	public void shouldIterateParameters() {
+		QueryCursor cursor = new Url("http://abc.com/?a=1&&b=x%20y&flag&c=&=v#f").getQueryCursor();
+		//@formatter:off
+		String[][] expected = new String[][] {
+			{ "a", "1", "1", "true" },
+			{ "b", "x y", "x%20y", "true" },
+			{ "flag", "", "", "false" },
+			{ "c", "", "", "true" },
+			{ "", "v", "v", "true" },
+		};
+		//@formatter:on
+		for (String[] parameter : expected) {
+			assertThat(cursor.next(), is(true));
+			assertThat(cursor.getKey(), equalTo(parameter[0]));
+			assertThat(cursor.getRawKey(), equalTo(parameter[0]));
+			assertThat(cursor.getValue(), equalTo(parameter[1]));
+			assertThat(cursor.getRawValue(), equalTo(parameter[2]));
+			assertThat(cursor.hasValue(), equalTo(Boolean.valueOf(parameter[3])));
+		}
+		assertThat(cursor.next(), is(false));
+		assertThat(cursor.next(), is(false));
+	}
+
+	public void shouldHaveNoParametersWithoutQuery() {
+		assertThat(new Url("http://abc.com/path#a=b").getQueryCursor().next(), is(false));
+		assertThat(new Url("http://abc.com/path?").getQueryCursor().next(), is(false));
+	}
+
+	public void shouldDecodeFormData() {
+		//@formatter:off
+		String[][] tests = new String[][] {
+			{ "plain", "plain" },
+			{ "a+b", "a b" },
+			{ "a%2Bb", "a+b" },
+			{ "%e6%97%a5%E6%9C%AC", "日本" },
+			{ "100%", "100%" },
+			{ "%zz%4", "%zz%4" },
+			{ "caf%C3%A9+%26+cr%C3%A8me", "café & crème" },
+		};
+		//@formatter:on
+		for (String[] test : tests) {
+			assertThat("Decoding " + test[0], PercentCodec.QUERY_PARAMETER.decode(test[0]), equalTo(test[1]));
+		}
+	}
+
+	public void shouldCompareKeysWithoutDecoding() {
+		QueryCursor cursor = new Url("http://abc.com/?user_id=1&user%5Fname=2&a+b=3").getQueryCursor();
+		cursor.next();
+		assertThat(cursor.keyEquals("user_id"), is(true));
+		assertThat(cursor.keyEquals("user_i"), is(false));
+		cursor.next();
+		assertThat(cursor.keyEquals("user_name"), is(true));
+		cursor.next();
+		assertThat(cursor.keyEquals("a b"), is(true));
+	}
+
+	public void shouldGetParameters() {
+		Url url = new Url("http://abc.com/?id=1&q=hello+world&id=2&flag&%6Eame=%C3%A9");
+		assertThat(url.getParameter("id"), equalTo("1"));
+		assertThat(url.getParameter("q"), equalTo("hello world"));
+		assertThat(url.getParameter("flag"), equalTo(""));
+		assertThat(url.getParameter("name"), equalTo("é"));
+		assertThat(url.getParameter("missing"), nullValue());
+		assertThat(url.getParameters("id"), equalTo(Arrays.asList("1", "2")));
+		assertThat(url.getParameters("missing"), equalTo(Collections.<String> emptyList()));
+		assertThat(new Url("http://abc.com").getParameter("id"), nullValue());
+	}
+
+	public void shouldBuildParameterMap() {
+		Url url = new Url("http://abc.com/?id=1&q=a+b&id=2");
+		assertThat(url.getParameterMap(), equalTo((Object) ImmutableListMultimap.of("id", "1", "q", "a b", "id", "2")));
+		assertThat(url.getParameterMap(), sameInstance(url.getParameterMap()));
+		assertThat(new Url("http://abc.com").getParameterMap().isEmpty(), is(true));
+	}
+
+	public void shouldGetParametersOfBytes() {
+		byte[] bytes = "http://abc.com/?name=ש%C3%A9+x&ש=1".getBytes(Charsets.UTF_8);
+		Url url = new Url(bytes, 0, bytes.length);
+		assertThat(url.getParameter("name"), equalTo("שé x"));
+		assertThat(url.getParameter("ש"), equalTo("1"));
+	}
+}
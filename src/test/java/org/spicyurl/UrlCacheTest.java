@@ -0,0 +1,96 @@
+package org.spicyurl;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.annotations.Test;
+
+@Test
+public class UrlCacheTest {
+
+	public void shouldCacheUrls() {
+		UrlCache cache = UrlCache.ofMaximumSize(10);
+		Url url = cache.get("http://abc.com/a");
+		assertThat(url.getHost(), equalTo("abc.com"));
+		assertThat(cache.get(new String("http://abc.com/a")), sameInstance(url));
+		assertThat(cache.getIfPresent("http://abc.com/a"), sameInstance(url));
+		assertThat(cache.getIfPresent("http://abc.com/b"), nullValue());
+		assertThat(cache.stats().hitCount(), is(2L));
+		assertThat(cache.stats().missCount(), is(2L));
+	}
+
+	public void shouldCacheInvalidUrls() {
+		UrlCache cache = UrlCache.ofMaximumSize(10);
+		Url url = cache.get("http://abc.com:99999");
+		assertThat(url.isValid(), is(false));
+		assertThat(cache.get("http://abc.com:99999"), sameInstance(url));
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void shouldRejectBlankUrls() {
+		UrlCache.ofMaximumSize(10).get(" ");
+	}
+
+	public void shouldEvictBySize() {
+		UrlCache cache = UrlCache.ofMaximumSize(10);
+		for (int i = 0; i < 100; i++) {
+			cache.get("http://abc.com/" + i);
+		}
+		assertThat(cache.size() <= 10, is(true));
+		assertThat(cache.stats().evictionCount() >= 90, is(true));
+	}
+
+	public void shouldEvictByLength() {
+		UrlCache cache = UrlCache.ofMaximumLength(100);
+		for (int i = 0; i < 100; i++) {
+			cache.get("http://abc.com/" + (1000 + i));
+		}
+		// 19 chars each
+		assertThat(cache.size() <= 5, is(true));
+		assertThat(cache.stats().evictionCount() >= 95, is(true));
+		cache.invalidateAll();
+		assertThat(cache.size(), is(0L));
+	}
+
+	public void shouldInternHosts() {
+		UrlCache cache = UrlCache.ofMaximumSize(10, new UrlInternPool());
+		assertThat(cache.get("http://abc.com/a").getHost(), sameInstance(cache.get("http://abc.com/b").getHost()));
+		cache.get("http://abc.com/a");
+		assertThat(cache.stats().hitCount(), is(1L));
+		assertThat(cache.stats().missCount(), is(2L));
+	}
+
+	public void shouldShareUrlsBetweenThreads() throws Exception {
+		final UrlCache cache = UrlCache.ofMaximumSize(1000);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Url>> futures = new ArrayList<Future<Url>>();
+			for (int i = 0; i < 100; i++) {
+				futures.add(executor.submit(new Callable<Url>() {
+					@Override
+					public Url call() {
+						return cache.get("http://user@abc.com:8080/path?q#f");
+					}
+				}));
+			}
+			Url first = futures.get(0).get();
+			for (Future<Url> future : futures) {
+				assertThat(future.get(), sameInstance(first));
+			}
+			assertThat(first.getPort(), is(8080));
+			assertThat(cache.stats().loadCount(), is(1L));
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,189 @@
+package org.spicyurl;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.annotations.Test;
+
+import com.google.common.io.Files;
+
+@Test
+public class UrlFingerprintSetTest {
+
+	public void shouldAddUrls() {
+		UrlFingerprintSet set = new UrlFingerprintSet();
+		assertThat(set.add(new Url("http://www.example.com/a")), equalTo(true));
+		assertThat(set.add(new Url("HTTP://WWW.example.com:80/./a")), equalTo(false));
+		assertThat(set.contains(new Url("http://www.example.com/a")), equalTo(true));
+		assertThat(set.contains(new Url("http://www.example.com/b")), equalTo(false));
+		assertThat(set.size(), equalTo(1L));
+	}
+
+	public void shouldKeepZero() {
+		UrlFingerprintSet set = new UrlFingerprintSet(0, 1);
+		assertThat(set.contains(0), equalTo(false));
+		assertThat(set.add(0), equalTo(true));
+		assertThat(set.add(0), equalTo(false));
+		assertThat(set.contains(0), equalTo(true));
+		assertThat(set.size(), equalTo(1L));
+	}
+
+	public void shouldGrowLikeHashSet() {
+		UrlFingerprintSet set = new UrlFingerprintSet(0, 4);
+		long initialMemory = set.memoryUsage();
+		Set<Long> expected = new HashSet<Long>();
+		Random random = new Random(42);
+		for (int i = 0; i < 100000; i++) {
+			// Few distinct values, so there are repeats
+			long fingerprint = random.nextInt(50000) * 0x9e3779b97f4a7c15L;
+			assertThat(set.add(fingerprint), equalTo(expected.add(fingerprint)));
+		}
+		assertThat(set.size(), equalTo((long) expected.size()));
+		for (long fingerprint : expected) {
+			assertThat(set.contains(fingerprint), equalTo(true));
+		}
+		assertThat(set.contains(0x9e3779b97f4a7c15L * 50001), equalTo(false));
+		assertThat(set.memoryUsage() > initialMemory, equalTo(true));
+	}
+
+	public void shouldAddConcurrently() throws Exception {
+		final UrlFingerprintSet set = new UrlFingerprintSet(1000, 8);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+			for (int t = 0; t < 4; t++) {
+				futures.add(executor.submit(new Callable<Integer>() {
+					@Override
+					public Integer call() {
+						int added = 0;
+						for (long i = 1; i <= 100000; i++) {
+							if (set.add(i * 0x9e3779b97f4a7c15L)) {
+								added++;
+							}
+						}
+						return added;
+					}
+				}));
+			}
+			int added = 0;
+			for (Future<Integer> future : futures) {
+				added += future.get();
+			}
+			// Every fingerprint was added by exactly one thread
+			assertThat(added, equalTo(100000));
+			assertThat(set.size(), equalTo(100000L));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	public void shouldSaveAndLoad() throws IOException {
+		UrlFingerprintSet set = new UrlFingerprintSet(100, 4);
+		for (long i = 0; i < 1000; i++) {
+			set.add(i * 0x9e3779b97f4a7c15L);
+		}
+		File dir = Files.createTempDir();
+		File file = new File(dir, "seen.bin");
+		try {
+			Files.write("previous".getBytes("UTF-8"), file);
+			set.save(file);
+			assertThat(Arrays.asList(dir.list()), equalTo(Arrays.asList("seen.bin")));
+			UrlFingerprintSet loaded = UrlFingerprintSet.load(file);
+			assertThat(loaded.size(), equalTo(1000L));
+			assertThat(loaded.contains(0), equalTo(true));
+			assertThat(loaded.contains(999 * 0x9e3779b97f4a7c15L), equalTo(true));
+			assertThat(loaded.contains(1000 * 0x9e3779b97f4a7c15L), equalTo(false));
+			assertThat(loaded.add(1000 * 0x9e3779b97f4a7c15L), equalTo(true));
+			assertThat(loaded.memoryUsage(), equalTo(set.memoryUsage()));
+		} finally {
+			file.delete();
+			dir.delete();
+		}
+	}
+
+	@Test(expectedExceptions = IOException.class)
+	public void shouldRejectOtherFiles() throws IOException {
+		File file = File.createTempFile("seen", ".bin");
+		try {
+			Files.write("not a fingerprint set".getBytes("UTF-8"), file);
+			UrlFingerprintSet.load(file);
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test(expectedExceptions = IOException.class)
+	public void shouldRejectOverfullSegments() throws IOException {
+		File file = File.createTempFile("seen", ".bin");
+		try {
+			new UrlFingerprintSet(100, 4).save(file);
+			// The first segment has 64 slots, so it holds at most 48
+			RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			try {
+				raf.seek(13 + 4);
+				raf.writeInt(Integer.reverseBytes(49));
+			} finally {
+				raf.close();
+			}
+			UrlFingerprintSet.load(file);
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test(expectedExceptions = IOException.class)
+	public void shouldRejectSegmentsWithoutFreeSlots() throws IOException {
+		File file = File.createTempFile("seen", ".bin");
+		try {
+			new UrlFingerprintSet(100, 4).save(file);
+			// The first segment says it is empty, but all its 64 slots are
+			// taken
+			RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			try {
+				raf.seek(13 + 8);
+				for (long i = 1; i <= 64; i++) {
+					raf.writeLong(i << 32);
+				}
+			} finally {
+				raf.close();
+			}
+			UrlFingerprintSet.load(file);
+		} finally {
+			file.delete();
+		}
+	}
+
+	public void shouldSaveToShortFileNames() throws IOException {
+		UrlFingerprintSet set = new UrlFingerprintSet(100, 1);
+		set.add(42);
+		File dir = Files.createTempDir();
+		File file = new File(dir, "a");
+		try {
+			set.save(file);
+			assertThat(Arrays.asList(dir.list()), equalTo(Arrays.asList("a")));
+			assertThat(UrlFingerprintSet.load(file).contains(42), equalTo(true));
+		} finally {
+			file.delete();
+			dir.delete();
+		}
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void shouldRejectBadSegmentCount() {
+		new UrlFingerprintSet(100, 0);
+	}
+}
@@ -0,0 +1,71 @@
+package org.spicyurl;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+
+@Test
+public class UrlFingerprintTest {
+
+	private static final UrlNormalizer NORMALIZER = new UrlNormalizer();
+
+	private static final String[] URLS = { "http://example.com/", "HTTP://User@Example.COM:80/a/./b/../c?q=%7e#f",
+			"https://www.example.com:8443/path/to/resource.html?a=1&b=2", "http://0x7f.1/", "http://[0:0::1]/",
+			"http://bücher.de/straße?q=日本#😀", "http://example.com/%41%2f", "no-scheme", "http://:80/",
+			"ftp://ftp.example.org:21/pub/", "http://a/b/c/d;p?q" };
+
+	public void shouldMatchMurmur3OfCanonicalString() {
+		for (String raw : URLS) {
+			Url url = new Url(raw);
+			HashCode expected = Hashing.murmur3_128().hashString(NORMALIZER.toCanonicalString(url), Charsets.UTF_8);
+			ByteBuffer bytes = ByteBuffer.wrap(expected.asBytes()).order(ByteOrder.LITTLE_ENDIAN);
+			assertThat("Fingerprint of " + raw, url.fingerprint(), equalTo(expected.asLong()));
+			long[] fingerprint = NORMALIZER.fingerprint128(url);
+			assertThat("Fingerprint of " + raw, fingerprint[0], equalTo(bytes.getLong()));
+			assertThat("Fingerprint of " + raw, fingerprint[1], equalTo(bytes.getLong()));
+		}
+	}
+
+	public void shouldBeStable() {
+		// Stored fingerprints must stay valid; this pins the algorithm
+		Murmur3Hasher hasher = new Murmur3Hasher();
+		String fox = "The quick brown fox jumps over the lazy dog";
+		hasher.putChars(fox, 0, fox.length());
+		assertThat(hasher.h1(), equalTo(0xe34bbc7bbc071b6cL));
+		assertThat(hasher.h2(), equalTo(0x7a433ca9c49a9347L));
+		Murmur3Hasher empty = new Murmur3Hasher();
+		assertThat(empty.h1(), equalTo(0L));
+		assertThat(empty.h2(), equalTo(0L));
+	}
+
+	public void shouldFingerprintEquivalentUrlsTheSame() {
+		long fingerprint = new Url("http://www.example.com/a/b").fingerprint();
+		assertThat(new Url("HTTP://WWW.Example.com:80/a/./c/../b").fingerprint(), equalTo(fingerprint));
+		assertThat(new Url("http://www.example.com/%61/b").fingerprint(), equalTo(fingerprint));
+		byte[] bytes = "http://www.example.com/a/b".getBytes(Charsets.UTF_8);
+		assertThat(new Url(bytes, 0, bytes.length).fingerprint(), equalTo(fingerprint));
+		assertThat(new Url("http://www.example.com/a/B").fingerprint(), not(equalTo(fingerprint)));
+	}
+
+	public void shouldFingerprintByteBackedUnicodeUrls() {
+		String raw = "http://bücher.de/straße?q=日本";
+		byte[] bytes = raw.getBytes(Charsets.UTF_8);
+		assertThat(new Url(bytes, 0, bytes.length).fingerprint(), equalTo(new Url(raw).fingerprint()));
+	}
+
+	public void shouldHashUnpairedSurrogatesLikeStringGetBytes() {
+		String s = "a\ud800b\udc00c\ud800";
+		Murmur3Hasher hasher = new Murmur3Hasher();
+		hasher.putChars(s, 0, s.length());
+		assertThat(hasher.h1(), equalTo(Hashing.murmur3_128().hashBytes(s.getBytes(Charsets.UTF_8)).asLong()));
+	}
+}
@@ -0,0 +1,64 @@
+package org.spicyurl;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.nio.ByteBuffer;
+
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+
+@Test
+public class UrlInternPoolTest {
+
+	public void shouldShareEqualRanges() {
+		UrlInternPool pool = new UrlInternPool();
+		String first = pool.intern("x.abc.com/", 2, 9);
+		String second = pool.intern(new StringBuilder("http://abc.com"), 7, 14);
+		assertThat(first, equalTo("abc.com"));
+		assertThat(second, sameInstance(first));
+		assertThat(pool.intern("abd.com"), not(sameInstance(first)));
+		assertThat(pool.intern("abd.com"), equalTo("abd.com"));
+	}
+
+	public void shouldMapWellKnownSchemesToConstants() {
+		UrlInternPool pool = new UrlInternPool(1);
+		assertThat(pool.intern(new StringBuilder("http")), sameInstance("http"));
+		assertThat(pool.intern("xhttps", 1, 6), sameInstance("https"));
+		assertThat(pool.intern("HTTP"), equalTo("HTTP"));
+	}
+
+	public void shouldBeBounded() {
+		UrlInternPool pool = new UrlInternPool(100);
+		assertThat(pool.capacity(), is(128));
+		for (int i = 0; i < 10000; i++) {
+			String host = "host" + i + ".com";
+			assertThat(pool.intern(host), equalTo(host));
+			assertThat(pool.intern(new StringBuilder(host)), sameInstance(pool.intern(host)));
+		}
+	}
+
+	public void shouldInternBytes() {
+		UrlInternPool pool = new UrlInternPool();
+		byte[] ascii = "abc.com".getBytes(Charsets.UTF_8);
+		ByteSequence bytes = new ByteSequence(ByteBuffer.wrap(ascii), 0, ascii.length);
+		assertThat(pool.intern(bytes), sameInstance(pool.intern("abc.com")));
+		byte[] utf8 = "\u05e9.com".getBytes(Charsets.UTF_8);
+		assertThat(pool.intern(new ByteSequence(ByteBuffer.wrap(utf8), 0, utf8.length)), equalTo("\u05e9.com"));
+	}
+
+	public void shouldShareUrlHostsAndSchemes() {
+		UrlInternPool pool = new UrlInternPool();
+		Url first = new Url("http://abc.com/a", pool);
+		Url second = new Url("http://user@abc.com:8080/b", pool);
+		assertThat(first.getScheme(), sameInstance("http"));
+		assertThat(second.getScheme(), sameInstance("http"));
+		assertThat(second.getHost(), sameInstance(first.getHost()));
+		assertThat(second.getHost(), equalTo("abc.com"));
+		assertThat(new Url("abc.com", pool).getHost() == null, is(true));
+	}
+}
@@ -0,0 +1,111 @@
+package org.spicyurl;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.Arrays;
+
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+
+@Test
+public class UrlMatcherTest {
+
+	private final UrlMatcher matcher = UrlMatcher.builder()
+			.add(1, "example.com")
+			.add(2, "*.example.com")
+			.add(3, "*.example.com/ads/*")
+			.add(4, "https://example.com")
+			.add(5, "example.com:8080")
+			.add(6, "example.com/")
+			.add(7, "www.example.com/a/b")
+			.add(8, "*/*")
+			.add(9, "*://cdn.example.org:443/static/*")
+			.add(10, "ftp://*")
+			.add(11, "[::1]:80")
+			.add(12, "Tracker.Example.NET/pixel.gif")
+			.add(12, "tracker.example.net/*")
+			.add(13, "*.co.uk/")
+			.build();
+
+	public void shouldMatchAllRules() {
+		//@formatter:off
+		Object[][] tests = new Object[][] {
+			{ "http://example.com", new int[] { 1, 6, 8 } },
+			{ "http://example.com/", new int[] { 1, 6, 8 } },
+			{ "http://example.com/index.html", new int[] { 1, 8 } },
+			{ "https://EXAMPLE.com./x", new int[] { 1, 4, 8 } },
+			{ "http://example.com:8080/", new int[] { 1, 5, 6, 8 } },
+			{ "http://www.example.com/a/b", new int[] { 2, 7, 8 } },
+			{ "http://www.example.com/a/b/", new int[] { 2, 8 } },
+			{ "http://a.b.example.com/ads/", new int[] { 2, 3, 8 } },
+			{ "http://a.b.example.com/ads/x/y.gif?q#f", new int[] { 2, 3, 8 } },
+			{ "http://a.example.com/ads", new int[] { 2, 8 } },
+			{ "http://example.com/ads/x", new int[] { 1, 8 } },
+			{ "https://cdn.example.org/static/app.js", new int[] { 8, 9 } },
+			{ "http://cdn.example.org/static/app.js", new int[] { 8 } },
+			{ "ftp://files.example.org/", new int[] { 8, 10 } },
+			{ "http://[::1]/", new int[] { 8, 11 } },
+			{ "http://tracker.example.net/pixel.gif", new int[] { 8, 12 } },
+			{ "http://bbc.co.uk/", new int[] { 8, 13 } },
+			{ "http://www.bbc.co.uk/news", new int[] { 8 } },
+			{ "http://example.org/", new int[] { 8 } },
+			{ "file:///etc/hosts", new int[0] },
+		};
+		//@formatter:on
+		for (Object[] test : tests) {
+			Url url = new Url((String) test[0]);
+			int[] expected = (int[]) test[1];
+			assertThat("Matching " + test[0], Arrays.toString(matcher.match(url)), equalTo(Arrays.toString(expected)));
+			assertThat("Matching " + test[0], matcher.matches(url), equalTo(expected.length > 0));
+		}
+	}
+
+	public void shouldMatchByteBackedUrls() {
+		byte[] bytes = "http://www.example.com/a/b".getBytes(Charsets.UTF_8);
+		assertThat(Arrays.toString(matcher.match(new Url(bytes, 0, bytes.length))), equalTo("[2, 7, 8]"));
+	}
+
+	public void shouldMatchIdnHostsInBothForms() {
+		UrlMatcher idn = UrlMatcher.builder()
+				.add(1, "bücher.de/straße/*")
+				.add(2, "*.xn--fiqs8s")
+				.build();
+		//@formatter:off
+		String[][] tests = new String[][] {
+			{ "http://bücher.de/straße/1", "[1]" },
+			{ "http://xn--bcher-kva.de/straße/1", "[1]" },
+			{ "http://bücher.de/strasse/1", "[]" },
+			{ "http://www.中国/", "[2]" },
+			{ "http://www.xn--fiqs8s/", "[2]" },
+		};
+		//@formatter:on
+		for (String[] test : tests) {
+			byte[] bytes = test[0].getBytes(Charsets.UTF_8);
+			assertThat("Matching " + test[0], Arrays.toString(idn.match(new Url(test[0]))), equalTo(test[1]));
+			assertThat("Matching bytes of " + test[0], Arrays.toString(idn.match(new Url(bytes, 0, bytes.length))),
+					equalTo(test[1]));
+		}
+		assertThat(idn.size(), equalTo(2));
+	}
+
+	public void shouldMatchNothingWithoutRules() {
+		UrlMatcher empty = UrlMatcher.builder().build();
+		assertThat(empty.size(), equalTo(0));
+		assertThat(empty.match(new Url("http://example.com/")).length, equalTo(0));
+		assertThat(matcher.size(), equalTo(14));
+	}
+
+	public void shouldRejectMalformedRules() {
+		for (String rule : new String[] { "", "://example.com", "example.com:", "example.com:http", "example.com:65536",
+				"a..com", "www.*.com", "/path" }) {
+			try {
+				UrlMatcher.builder().add(1, rule);
+				throw new AssertionError("Should throw IllegalArgumentException on " + rule);
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+}